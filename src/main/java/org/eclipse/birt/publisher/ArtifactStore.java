@@ -0,0 +1,137 @@
+package org.eclipse.birt.publisher;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import org.eclipse.birt.publisher.metadata.Artifact;
+import org.eclipse.birt.publisher.metadata.Checksum;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Content addressable store of the downloaded artifacts.
+ *
+ * <p>The artifacts are stored once by their p2 sha-512, whichever site or release they come from,
+ * and the per site paths are hard links to the stored files. An artifact already in the store is
+ * not downloaded again, its digest is checked instead each time it's linked to a site path.
+ */
+public class ArtifactStore {
+
+  private static final Logger log = LoggerFactory.getLogger(ArtifactStore.class);
+
+  private static final Pattern SHA512 = Pattern.compile("[0-9a-fA-F]{128}");
+
+  private final Path root;
+
+  // Striped by digest, so the same artifact is never downloaded twice at once
+  private final ReentrantLock[] locks = new ReentrantLock[64];
+
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+
+  /**
+   * Create the store
+   *
+   * @param root the store directory
+   */
+  public ArtifactStore(Path root) {
+    this.root = root;
+    for (var i = 0; i < locks.length; i++) {
+      locks[i] = new ReentrantLock();
+    }
+  }
+
+  /** The store path of a sha-512 digest, null if it's not a valid digest */
+  Path path(String sha512) {
+    if (sha512 == null || !SHA512.matcher(sha512).matches()) {
+      return null;
+    }
+    var hex = sha512.toLowerCase(Locale.ROOT);
+    return root.resolve("sha512").resolve(hex.substring(0, 2)).resolve(hex);
+  }
+
+  /**
+   * Whether an artifact is there already, without checking its digest
+   *
+   * @param artifact the artifact
+   * @param file the per site file of the artifact
+   */
+  public boolean contains(Artifact artifact, Path file) {
+    var stored = path(artifact.sha512);
+    return Files.exists(file) || stored != null && Files.exists(stored);
+  }
+
+  /**
+   * Get an artifact, downloading it only if it's not in the store yet
+   *
+   * <p>Whichever way the file gets there, its digest is checked against the p2 checksum of the
+   * artifact, if it has one.
+   *
+   * @param artifact the artifact
+   * @param file the per site file of the artifact
+   * @return true if the artifact was downloaded
+   */
+  public boolean fetch(Artifact artifact, Path file) {
+    if (Client.isCached(file, artifact.getChecksum())) {
+      return false;
+    }
+
+    // Artifacts without a valid sha-512 can't be shared
+    var stored = path(artifact.sha512);
+    if (stored == null) {
+      artifact.site.download(artifact, file);
+      return true;
+    }
+
+    var hex = stored.getFileName().toString();
+    var lock = locks[Math.floorMod(hex.hashCode(), locks.length)];
+    lock.lock();
+    try {
+      var downloaded = !Client.isCached(stored, new Checksum("SHA-512", hex));
+      if (downloaded) {
+        misses.incrementAndGet();
+        artifact.site.download(artifact, stored);
+      } else {
+        hits.incrementAndGet();
+        log.debug("Using stored {}", artifact);
+      }
+      link(stored, file);
+      return downloaded;
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static void link(Path stored, Path file) throws IOException {
+    Files.createDirectories(file.getParent());
+    try {
+      Files.createLink(file, stored);
+    } catch (FileAlreadyExistsException e) {
+      // Linked already
+    } catch (UnsupportedOperationException | IOException e) {
+      // Another file system, or no hard links there
+      log.debug("Unable to link {}, copying it", file, e);
+      var temp = file.resolveSibling(file.getFileName() + ".part");
+      Files.copy(stored, temp, StandardCopyOption.REPLACE_EXISTING);
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /** The number of artifacts found in the store */
+  public int getHits() {
+    return hits.get();
+  }
+
+  /** The number of artifacts downloaded to the store */
+  public int getMisses() {
+    return misses.get();
+  }
+}
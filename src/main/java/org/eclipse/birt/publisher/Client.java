@@ -1,18 +1,34 @@
 package org.eclipse.birt.publisher;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse;
 import java.net.http.HttpResponse.BodyHandler;
 import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.net.http.HttpResponse.ResponseInfo;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.zip.ZipFile;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.regex.Pattern;
+import org.eclipse.birt.publisher.metadata.Checksum;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,84 +36,488 @@ public class Client {
 
   private static final Logger log = LoggerFactory.getLogger(Client.class);
 
+  private static final String ETAG = "ETag";
+  private static final String LAST_MODIFIED = "Last-Modified";
+
+  private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-");
+
+  // Interrupted transfers are resumed from the partial file
+  private static final int ATTEMPTS = 3;
+
+  private static final Duration CONNECT_TIMEOUT =
+      Duration.ofSeconds(Long.getLong(Config.HTTP_CONNECT_TIMEOUT, 30));
+
+  private static final Duration REQUEST_TIMEOUT =
+      Duration.ofSeconds(Long.getLong(Config.HTTP_REQUEST_TIMEOUT, 120));
+
+  /** An unexpected response status */
+  public static class StatusException extends IOException {
+
+    private final int status;
+
+    public StatusException(String url, int status) {
+      super(
+          status == 404
+              ? "File not found: " + url
+              : String.format("Failed to download %s: %d", url, status));
+      this.status = status;
+    }
+
+    public int getStatus() {
+      return status;
+    }
+  }
+
+  /**
+   * A timed request
+   *
+   * @param status the response status
+   * @param nanos the time the request took, without the wait for a connection
+   */
+  public static record Timed(int status, long nanos) {}
+
+  // Shared by all the requests to reuse the connections, created on first use
+  private static HttpClient client;
+
+  private static synchronized HttpClient client() {
+    if (client == null) {
+      client =
+          HttpClient.newBuilder()
+              .version(HttpClient.Version.HTTP_2)
+              .followRedirects(HttpClient.Redirect.NORMAL)
+              .connectTimeout(CONNECT_TIMEOUT)
+              .build();
+    }
+    return client;
+  }
+
+  /** Close the shared http client, waiting for the running requests to complete */
+  public static void close() {
+    HttpClient closing;
+    synchronized (Client.class) {
+      closing = client;
+      client = null;
+    }
+    if (closing != null) {
+      closing.close();
+    }
+  }
+
+  private static HttpRequest.Builder request(String url) {
+    return HttpRequest.newBuilder().uri(URI.create(url)).timeout(REQUEST_TIMEOUT);
+  }
+
   private static <T> HttpResponse<T> send(HttpRequest request, BodyHandler<T> handler)
       throws IOException, InterruptedException {
-    try (var client = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build()) {
-      return client.send(request, handler);
-    }
+    return IoScheduler.get().request(request.uri(), () -> client().send(request, handler));
   }
 
   public static void download(String url, Path file) {
-    if (Files.exists(file)) {
+    download(url, file, null);
+  }
+
+  /**
+   * Download a file unless it's already there, verifying its checksum
+   *
+   * <p>The digest is computed while the file is downloaded, and the file is moved in place only if
+   * it matches. A file already there is checked too, and downloaded again if it doesn't match.
+   *
+   * @param url the remote url
+   * @param file the local file
+   * @param checksum the expected checksum, null to skip the verification
+   */
+  public static void download(String url, Path file, Checksum checksum) {
+    if (isCached(file, checksum)) {
       return;
     }
+    if (!fetch(url, file, null, checksum)) {
+      var e = new StatusException(url, 404);
+      throw new RuntimeException(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Whether a file is downloaded already, a file that doesn't match its checksum is deleted
+   *
+   * @param file the local file
+   * @param checksum the expected checksum, null to use any existing file
+   */
+  public static boolean isCached(Path file, Checksum checksum) {
+    if (Files.notExists(file)) {
+      return false;
+    }
+    if (checksum == null) {
+      return true;
+    }
+    try {
+      if (matches(file, checksum)) {
+        return true;
+      }
+      log.warn("Checksum mismatch of {}, downloading it again", file);
+      Files.delete(file);
+      return false;
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
 
-    log.info("Downloading {}", url);
+  /**
+   * Whether the digest of a file matches a checksum
+   *
+   * @param file the file
+   * @param checksum the expected checksum
+   * @throws IOException if the file can't be read
+   */
+  public static boolean matches(Path file, Checksum checksum) throws IOException {
+    var digest = checksum.newDigest();
+    update(digest, file);
+    return checksum.value().equalsIgnoreCase(HexFormat.of().formatHex(digest.digest()));
+  }
 
-    var temp = file.resolveSibling(file.getFileName() + ".part");
-    var request = HttpRequest.newBuilder().uri(URI.create(url)).build();
+  /** Add the content of a file to a digest */
+  private static void update(MessageDigest digest, Path file) throws IOException {
+    try (var stream = Files.newInputStream(file)) {
+      var buffer = new byte[1 << 16];
+      for (var read = stream.read(buffer); read >= 0; read = stream.read(buffer)) {
+        digest.update(buffer, 0, read);
+      }
+    }
+  }
+
+  /**
+   * Download a file, or revalidate the cached copy with the server
+   *
+   * <p>The {@code ETag} and {@code Last-Modified} validators of the response are stored next to the
+   * file and sent back with the next request, so the file is only downloaded again if it changed on
+   * the server. Files cached without validators are used as they are.
+   *
+   * @param url the remote url
+   * @param file the local file
+   * @return false if the remote file doesn't exist
+   */
+  public static boolean refresh(String url, Path file) {
+    var validators = file.resolveSibling(file.getFileName() + ".validators");
+    if (Files.exists(file) && Files.notExists(validators)) {
+      return true;
+    }
+    return fetch(url, file, validators, null);
+  }
+
+  private static boolean fetch(String url, Path file, Path validators, Checksum checksum) {
+    var cached = validators != null && Files.exists(file);
+    if (cached) {
+      log.info("Revalidating {}", url);
+    } else {
+      log.info("Downloading {}", url);
+    }
 
     try {
       Files.createDirectories(file.getParent());
-      send(request, BodyHandlers.ofFile(temp));
-      Files.move(temp, file);
+      for (var attempt = 1; ; attempt++) {
+        try {
+          return transfer(url, file, validators, cached, checksum);
+        } catch (IOException e) {
+          if (cached) {
+            log.warn("Unable to revalidate {}, using the cached file", url, e);
+            return true;
+          }
+          if (attempt >= ATTEMPTS) {
+            throw e;
+          }
+          log.warn("Download of {} failed, retrying: {}", url, e.toString());
+        }
+      }
+    } catch (InterruptedException e) {
+      // Keep the flag, the download was cancelled
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
     } catch (Exception e) {
       throw new RuntimeException(e);
-    } finally {
-      try {
-        Files.deleteIfExists(temp);
-      } catch (IOException e) {
-        // Ignore
-      }
     }
   }
 
-  public static void verify(Path file, String checksum) {
-    verify(file, checksum, "SHA-512");
+  /**
+   * Send a {@code HEAD} request
+   *
+   * @param url the remote url
+   * @return the response status
+   * @throws IOException if the request fails
+   */
+  public static int head(String url) throws IOException {
+    var request = request(url).method("HEAD", BodyPublishers.noBody()).build();
+    try {
+      return send(request, BodyHandlers.discarding()).statusCode();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(url);
+    }
   }
 
-  public static void verify(Path file, String checksum, String algorithm) {
-    MessageDigest digest;
+  /**
+   * Send a {@code HEAD} request and time it once it has a connection
+   *
+   * @param url the remote url
+   * @return the response status and the time it took
+   * @throws IOException if the request fails
+   */
+  public static Timed timedHead(String url) throws IOException {
+    var request = request(url).method("HEAD", BodyPublishers.noBody()).build();
     try {
-      digest = MessageDigest.getInstance(algorithm);
-    } catch (NoSuchAlgorithmException e) {
-      throw new IllegalArgumentException(e);
+      return IoScheduler.get()
+          .request(
+              request.uri(),
+              () -> {
+                var start = System.nanoTime();
+                var status = client().send(request, BodyHandlers.discarding()).statusCode();
+                return new Timed(status, System.nanoTime() - start);
+              });
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(url);
     }
+  }
 
-    try (var stream = Files.newInputStream(file)) {
-      var buffer = new byte[4096];
-      var read = 0;
-      while ((read = stream.read(buffer)) != -1) {
-        digest.update(buffer, 0, read);
+  /**
+   * Send a {@code GET} request, discarding the body
+   *
+   * @param url the remote url
+   * @return the response status
+   * @throws IOException if the request fails
+   */
+  public static int get(String url) throws IOException {
+    try {
+      return send(request(url).build(), BodyHandlers.discarding()).statusCode();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(url);
+    }
+  }
+
+  /**
+   * Send a single request, the partial file of an interrupted transfer is kept for the next one
+   *
+   * @return false if the remote file doesn't exist
+   * @throws IOException if the transfer fails
+   */
+  private static boolean transfer(
+      String url, Path file, Path validators, boolean cached, Checksum checksum)
+      throws IOException, InterruptedException {
+    var temp = file.resolveSibling(file.getFileName() + ".part");
+    var partValidators = temp.resolveSibling(temp.getFileName() + ".validators");
+    var request = request(url);
+
+    var offset = 0L;
+    if (cached) {
+      var props = readValidators(validators);
+      var etag = props.getProperty(ETAG);
+      var lastModified = props.getProperty(LAST_MODIFIED);
+      if (etag != null) request.header("If-None-Match", etag);
+      if (lastModified != null) request.header("If-Modified-Since", lastModified);
+    } else {
+      offset = resume(request, temp, partValidators);
+    }
+
+    var start = offset;
+    var response =
+        send(request.build(), info -> receive(info, start, temp, partValidators, checksum));
+    var status = response.statusCode();
+
+    if (status == 304 && cached) {
+      return true;
+    }
+    if (status == 404) {
+      discard(temp, partValidators);
+      if (validators != null) {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(validators);
       }
-    } catch (Exception e) {
-      throw new RuntimeException(e);
+      return false;
+    }
+    if (status == 206 && start != rangeStart(response.headers())) {
+      discard(temp, partValidators);
+      throw new IOException(String.format("Unexpected range of %s", url));
+    }
+    if (status != 200 && status != 206) {
+      // Including 416, the partial file doesn't match the remote file anymore
+      discard(temp, partValidators);
+      throw new StatusException(url, status);
+    }
+    if (checksum != null && !checksum.value().equalsIgnoreCase(response.body())) {
+      discard(temp, partValidators);
+      throw new IOException(String.format("Checksum mismatch of %s", url));
     }
 
-    // generate hex string from the digest
-    var actual = new StringBuilder();
-    for (var b : digest.digest()) {
-      actual.append(String.format("%02x", b));
+    if (validators != null) {
+      Files.deleteIfExists(validators);
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    Files.deleteIfExists(partValidators);
+    if (validators != null) {
+      writeValidators(validators, response.headers());
+    }
+    return true;
+  }
+
+  /** Ask for the rest of a partial file, returns the offset to resume from */
+  private static long resume(HttpRequest.Builder request, Path temp, Path partValidators)
+      throws IOException {
+    if (Files.notExists(temp)) {
+      return 0;
     }
 
-    if (!checksum.equalsIgnoreCase(actual.toString())) {
-      throw new RuntimeException("Checksum mismatch");
+    // Only resume if we can make sure the remote file didn't change, weak etags don't do
+    var props = readValidators(partValidators);
+    var etag = props.getProperty(ETAG);
+    var validator =
+        etag != null && !etag.startsWith("W/") ? etag : props.getProperty(LAST_MODIFIED);
+    var size = Files.size(temp);
+    if (validator == null || size == 0) {
+      discard(temp, partValidators);
+      return 0;
     }
+
+    log.info("Resuming download at {} bytes", size);
+    request.header("Range", "bytes=" + size + "-");
+    request.header("If-Range", validator);
+    return size;
   }
 
-  public static void extract(Path zipFile, Path dir) throws IOException {
-    Files.createDirectories(dir);
-    try (var zip = new ZipFile(zipFile.toFile())) {
-      var entries = zip.entries();
-      while (entries.hasMoreElements()) {
-        var entry = entries.nextElement();
-        var entryFile = dir.resolve(entry.getName());
-        if (entry.isDirectory()) {
-          Files.createDirectories(entryFile);
+  private static BodySubscriber<String> receive(
+      ResponseInfo info, long offset, Path temp, Path partValidators, Checksum checksum) {
+    return switch (info.statusCode()) {
+      case 206 ->
+          offset == rangeStart(info.headers())
+              ? new DigestSubscriber(temp, true, checksum)
+              : BodySubscribers.replacing(null);
+      case 200 -> {
+        // A new transfer, keep its validators to resume it
+        try {
+          writeValidators(partValidators, info.headers());
+        } catch (IOException e) {
+          log.debug("Unable to write {}", partValidators, e);
+        }
+        yield new DigestSubscriber(temp, false, checksum);
+      }
+      default -> BodySubscribers.replacing(null);
+    };
+  }
+
+  /** The first byte of a partial response, from {@code Content-Range: bytes 100-199/200} */
+  private static long rangeStart(HttpHeaders headers) {
+    var range = headers.firstValue("Content-Range").orElse("");
+    var matcher = CONTENT_RANGE.matcher(range);
+    return matcher.lookingAt() ? Long.parseLong(matcher.group(1)) : -1;
+  }
+
+  private static void discard(Path temp, Path partValidators) throws IOException {
+    Files.deleteIfExists(temp);
+    Files.deleteIfExists(partValidators);
+  }
+
+  private static Properties readValidators(Path file) {
+    var props = new Properties();
+    if (Files.notExists(file)) {
+      return props;
+    }
+    try (var reader = Files.newBufferedReader(file)) {
+      props.load(reader);
+    } catch (IOException e) {
+      // Revalidate without validators, the server sends the file again
+    }
+    return props;
+  }
+
+  private static void writeValidators(Path file, HttpHeaders headers) throws IOException {
+    var props = new Properties();
+    headers.firstValue(ETAG).ifPresent(x -> props.setProperty(ETAG, x));
+    headers.firstValue(LAST_MODIFIED).ifPresent(x -> props.setProperty(LAST_MODIFIED, x));
+    try (var writer = Files.newBufferedWriter(file)) {
+      props.store(writer, null);
+    }
+  }
+
+  /** Writes the body to the partial file, computing its digest on the way */
+  private static final class DigestSubscriber implements BodySubscriber<String> {
+
+    private final Path temp;
+    private final boolean append;
+    private final MessageDigest digest;
+    private final CompletableFuture<String> result = new CompletableFuture<>();
+
+    private Flow.Subscription subscription;
+    private FileChannel channel;
+
+    private DigestSubscriber(Path temp, boolean append, Checksum checksum) {
+      this.temp = temp;
+      this.append = append;
+      this.digest = checksum == null ? null : checksum.newDigest();
+    }
+
+    @Override
+    public CompletionStage<String> getBody() {
+      return result;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+      try {
+        if (append) {
+          // The digest covers the whole file, so hash what we have first
+          if (digest != null) {
+            update(digest, temp);
+          }
+          channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
         } else {
-          Files.createDirectories(entryFile.getParent());
-          Files.copy(zip.getInputStream(entry), entryFile, StandardCopyOption.REPLACE_EXISTING);
+          channel =
+              FileChannel.open(
+                  temp,
+                  StandardOpenOption.CREATE,
+                  StandardOpenOption.WRITE,
+                  StandardOpenOption.TRUNCATE_EXISTING);
         }
+      } catch (IOException e) {
+        subscription.cancel();
+        result.completeExceptionally(e);
+        return;
+      }
+      subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> items) {
+      try {
+        for (var item : items) {
+          if (digest != null) {
+            digest.update(item.duplicate());
+          }
+          while (item.hasRemaining()) {
+            channel.write(item);
+          }
+        }
+      } catch (IOException e) {
+        subscription.cancel();
+        onError(e);
+      }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      close();
+      result.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      close();
+      result.complete(digest == null ? null : HexFormat.of().formatHex(digest.digest()));
+    }
+
+    private void close() {
+      try {
+        if (channel != null) channel.close();
+      } catch (IOException e) {
+        result.completeExceptionally(e);
       }
     }
   }
@@ -1,5 +1,6 @@
 package org.eclipse.birt.publisher;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -23,8 +24,21 @@ public class Config {
 
   public static final String MAVEN_GROUP = "maven.group";
   public static final String MAVEN_RESOLVE = "maven.resolve";
+  public static final String MAVEN_RESOLVE_DOWNLOAD = "maven.resolve.download";
+  public static final String MAVEN_RESOLVE_TTL = "maven.resolve.ttl";
   public static final String MAVEN_SNAPSHOTS = "maven.snapshots";
 
+  public static final String METADATA_PROPERTIES = "metadata.properties";
+  public static final String ARTIFACT_STORE = "artifact.store";
+  public static final String PUBLISH_QUEUE = "publish.queue";
+  public static final String PUBLISH_DRY_RUN = "publish.dry.run";
+
+  public static final String HTTP_CONNECT_TIMEOUT = "http.connect.timeout";
+  public static final String HTTP_REQUEST_TIMEOUT = "http.request.timeout";
+  public static final String HTTP_HEDGE_DELAY = "http.hedge.delay";
+  public static final String HTTP_MAX_CONNECTIONS = "http.max.connections";
+  public static final String HTTP_MAX_HOST_CONNECTIONS = "http.max.host.connections";
+
   public static final String ENV_GPG_KEY = "GPG_KEY_FILE";
   public static final String ENV_GPG_PASSPHRASE = "GPG_PASSPHRASE";
   public static final String ENV_GPG_FINGERPRINT = "GPG_FINGERPRINT";
@@ -39,6 +53,15 @@ public class Config {
   public static class SiteConfig {
     public String name;
     public String url;
+    public List<String> mirrors = new ArrayList<>();
+
+    /** The site url followed by its mirrors */
+    public List<String> getUrls() {
+      var urls = new ArrayList<String>();
+      urls.add(url);
+      urls.addAll(mirrors);
+      return urls;
+    }
   }
 
   public static class MappingConfig {
@@ -61,6 +84,8 @@ public class Config {
     public String password;
     public String group;
     public boolean resolve;
+    public boolean resolveDownload;
+    public long resolveTtl;
     public boolean snapshots;
     public String gpgKey;
     public String gpgPassphrase;
@@ -78,6 +103,11 @@ public class Config {
 
   private final MavenConfig maven = getMavenConfig();
 
+  // Compiled when the config is loaded
+  private Rules<MappingConfig> mappingRules;
+  private Rules<PublishConfig> candidateRules;
+  private Rules<PublishConfig> excludeRules;
+
   public List<SiteConfig> getSites() {
     return sites;
   }
@@ -106,6 +136,28 @@ public class Config {
     return maven;
   }
 
+  @JsonIgnore
+  public Rules<MappingConfig> getMappingRules() {
+    return mappingRules;
+  }
+
+  @JsonIgnore
+  public Rules<PublishConfig> getCandidateRules() {
+    return candidateRules;
+  }
+
+  @JsonIgnore
+  public Rules<PublishConfig> getExcludeRules() {
+    return excludeRules;
+  }
+
+  private Config compile() {
+    mappingRules = Rules.compile("mappings", mappings, x -> null, x -> x.pattern);
+    candidateRules = Rules.compile("candidates", candidates, x -> x.id, x -> x.pattern);
+    excludeRules = Rules.compile("exclude", exclude, x -> x.id, x -> x.pattern);
+    return this;
+  }
+
   private static MavenConfig getMavenConfig() {
     var maven = new MavenConfig();
     maven.repoId = System.getProperty(MAVEN_REPO_ID);
@@ -115,6 +167,8 @@ public class Config {
     maven.password = System.getProperty(MAVEN_REPO_PASSWORD);
     maven.group = System.getProperty(MAVEN_GROUP);
     maven.resolve = Boolean.getBoolean(MAVEN_RESOLVE);
+    maven.resolveDownload = Boolean.getBoolean(MAVEN_RESOLVE_DOWNLOAD);
+    maven.resolveTtl = Long.getLong(MAVEN_RESOLVE_TTL, 24);
     maven.snapshots = Boolean.getBoolean(MAVEN_SNAPSHOTS);
 
     var env = System.getenv();
@@ -146,11 +200,17 @@ public class Config {
     return load(new InputStreamReader(stream));
   }
 
+  /**
+   * Load the config and compile its rules
+   *
+   * @throws IllegalArgumentException if a rule is invalid
+   */
   public static Config load(Reader reader) throws IOException {
     return new ObjectMapper()
         .configure(SerializationFeature.INDENT_OUTPUT, true)
         .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
         .setSerializationInclusion(JsonInclude.Include.NON_EMPTY)
-        .readValue(reader, Config.class);
+        .readValue(reader, Config.class)
+        .compile();
   }
 }
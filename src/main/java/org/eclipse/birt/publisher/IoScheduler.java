@@ -0,0 +1,226 @@
+package org.eclipse.birt.publisher;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scheduler of the network work.
+ *
+ * <p>The tasks run on virtual threads, so blocking downloads don't occupy the common pool. The HTTP
+ * requests they send wait for a permit of their host and a global permit, which limits the
+ * connections to each mirror independently of the number of cores.
+ */
+public class IoScheduler {
+
+  /** The work on an item, run on its own virtual thread */
+  @FunctionalInterface
+  public static interface Task<T> {
+    void run(T item) throws IOException;
+  }
+
+  /** A blocking request, run while holding the permits of its host */
+  @FunctionalInterface
+  public static interface Request<T> {
+    T send() throws IOException, InterruptedException;
+  }
+
+  /**
+   * The request counters
+   *
+   * @param requests the completed requests
+   * @param active the requests running now
+   * @param queued the requests waiting for a permit now
+   * @param maxQueued the most requests waiting for a permit at once
+   * @param waitMillis the total time the requests waited for a permit
+   * @param busyMillis the total time the requests held a permit
+   */
+  public static record Metrics(
+      long requests, int active, int queued, int maxQueued, long waitMillis, long busyMillis) {
+
+    @Override
+    public String toString() {
+      return String.format(
+          "%d requests, %d active, %d queued (max %d), waited %d ms, busy %d ms",
+          requests, active, queued, maxQueued, waitMillis, busyMillis);
+    }
+  }
+
+  private static final IoScheduler shared =
+      new IoScheduler(
+          Integer.getInteger(Config.HTTP_MAX_CONNECTIONS, 64),
+          Integer.getInteger(Config.HTTP_MAX_HOST_CONNECTIONS, 8));
+
+  private final int maxConnections;
+  private final int maxHostConnections;
+
+  private final Semaphore global;
+
+  private final Map<String, Semaphore> hosts = new ConcurrentHashMap<>();
+
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicInteger active = new AtomicInteger();
+  private final AtomicInteger queued = new AtomicInteger();
+  private final AtomicInteger maxQueued = new AtomicInteger();
+  private final AtomicLong waitNanos = new AtomicLong();
+  private final AtomicLong busyNanos = new AtomicLong();
+
+  IoScheduler(int maxConnections, int maxHostConnections) {
+    this.global = new Semaphore(maxConnections, true);
+    this.maxConnections = maxConnections;
+    this.maxHostConnections = maxHostConnections;
+  }
+
+  /** The scheduler shared by all the downloads */
+  public static IoScheduler get() {
+    return shared;
+  }
+
+  /** The number of concurrent requests in total */
+  public int getMaxConnections() {
+    return maxConnections;
+  }
+
+  /** The number of concurrent requests to a single host */
+  public int getConnections() {
+    return Math.min(maxConnections, maxHostConnections);
+  }
+
+  /**
+   * Estimate the makespan of a list of jobs run in order, each on the first free connection
+   *
+   * <p>The permits are fair, so the tasks get their connections in the order they are submitted.
+   * With the jobs sorted largest first, this is the longest processing time schedule, which is
+   * never more than 4/3 of the optimal one.
+   *
+   * @param jobs the job sizes, in the order they are submitted
+   * @param connections the number of connections
+   * @return the size of the busiest connection
+   */
+  public static long makespan(List<Long> jobs, int connections) {
+    var loads = new PriorityQueue<Long>();
+    for (var i = 0; i < connections; i++) {
+      loads.add(0L);
+    }
+    var makespan = 0L;
+    for (var job : jobs) {
+      var load = loads.poll() + job;
+      makespan = Math.max(makespan, load);
+      loads.add(load);
+    }
+    return makespan;
+  }
+
+  /**
+   * Run a task for each item on its own virtual thread and wait for all of them
+   *
+   * @param items the items
+   * @param task the task
+   * @throws UncheckedIOException if a task fails with an IOException, the other failures are
+   *     suppressed
+   */
+  public <T> void run(Collection<T> items, Task<T> task) {
+    var futures = new ArrayList<Future<?>>(items.size());
+    try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (var item : items) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  task.run(item);
+                  return null;
+                }));
+      }
+    }
+
+    Throwable failure = null;
+    for (var future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+        } else {
+          failure.addSuppressed(e.getCause());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      }
+    }
+
+    switch (failure) {
+      case null -> {}
+      case IOException e -> throw new UncheckedIOException(e);
+      case RuntimeException e -> throw e;
+      case Error e -> throw e;
+      default -> throw new RuntimeException(failure);
+    }
+  }
+
+  /**
+   * Send a request once a permit of its host and a global permit are available
+   *
+   * @param uri the request uri
+   * @param request the request
+   * @return the response
+   */
+  public <T> T request(URI uri, Request<T> request) throws IOException, InterruptedException {
+    var host = hosts.computeIfAbsent(hostOf(uri), x -> new Semaphore(maxHostConnections, true));
+
+    var waiting = queued.incrementAndGet();
+    maxQueued.accumulateAndGet(waiting, Math::max);
+    var start = System.nanoTime();
+    try {
+      host.acquire();
+    } catch (InterruptedException e) {
+      queued.decrementAndGet();
+      throw e;
+    }
+    try {
+      try {
+        global.acquire();
+      } finally {
+        queued.decrementAndGet();
+        waitNanos.addAndGet(System.nanoTime() - start);
+      }
+      var started = System.nanoTime();
+      try {
+        active.incrementAndGet();
+        return request.send();
+      } finally {
+        busyNanos.addAndGet(System.nanoTime() - started);
+        active.decrementAndGet();
+        requests.incrementAndGet();
+        global.release();
+      }
+    } finally {
+      host.release();
+    }
+  }
+
+  private static String hostOf(URI uri) {
+    return uri.getHost() + ":" + uri.getPort();
+  }
+
+  public Metrics metrics() {
+    return new Metrics(
+        requests.get(),
+        active.get(),
+        queued.get(),
+        maxQueued.get(),
+        waitNanos.get() / 1_000_000,
+        busyNanos.get() / 1_000_000);
+  }
+}
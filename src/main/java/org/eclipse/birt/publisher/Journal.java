@@ -0,0 +1,172 @@
+package org.eclipse.birt.publisher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write-ahead journal of the publish run.
+ *
+ * <p>Each unit records its state as it moves through the pipeline, one {@code <coordinates>
+ * <state>} line each, after a {@code # <repository>} header line. A journal of another target
+ * repository is not resumed. A deploy is not done until its record is on disk, so the journal is
+ * synced before a deploy is reported. The syncs are batched: a thread that finds a sync running
+ * waits for it, and usually finds its own record already synced by then. The other states are
+ * synced with the next deploy or when the journal is closed, losing them only means the work is
+ * done again.
+ */
+public class Journal implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(Journal.class);
+
+  /** The states of a unit, in pipeline order */
+  public static enum State {
+    DOWNLOADED,
+    VERIFIED,
+    SIGNED,
+    DEPLOYED;
+  }
+
+  private final FileChannel channel;
+
+  private final Map<String, State> states = new HashMap<>();
+
+  // Journal length written and synced, guarded by this and the sync lock
+  private long written;
+  private volatile long synced;
+
+  private final ReentrantLock sync = new ReentrantLock();
+
+  private final AtomicInteger records = new AtomicInteger();
+  private final AtomicInteger syncs = new AtomicInteger();
+
+  /**
+   * Open the journal
+   *
+   * @param file the journal file
+   * @param repository the url of the repository the units are deployed to
+   * @param resume true to continue the journal of the previous run, false to start a new one
+   */
+  public Journal(Path file, String repository, boolean resume) throws IOException {
+    Files.createDirectories(file.getParent());
+    var header = "# " + repository;
+    if (resume && Files.exists(file)) {
+      var lines = Files.readAllLines(file);
+      if (!lines.isEmpty() && lines.getFirst().equals(header)) {
+        for (var line : lines.subList(1, lines.size())) {
+          var parts = line.split(" ");
+          // Torn line of an interrupted run
+          if (parts.length != 2) continue;
+          try {
+            states.put(parts[0], State.valueOf(parts[1]));
+          } catch (IllegalArgumentException e) {
+            continue;
+          }
+        }
+        log.info("Resuming {} units from {}", states.size(), file);
+      } else {
+        log.warn("Not resuming {}, it's the journal of another repository", file);
+        resume = false;
+      }
+    }
+    var options =
+        resume
+            ? new StandardOpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.APPEND}
+            : new StandardOpenOption[] {
+              StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.TRUNCATE_EXISTING
+            };
+    this.channel = FileChannel.open(file, options);
+    if (channel.size() == 0) {
+      var line = ByteBuffer.wrap((header + "\n").getBytes(StandardCharsets.UTF_8));
+      while (line.hasRemaining()) {
+        channel.write(line);
+      }
+    }
+    this.written = channel.size();
+    this.synced = written;
+  }
+
+  /**
+   * The state of a unit in the previous run
+   *
+   * @param coordinates the maven coordinates
+   * @return the last recorded state, null if none
+   */
+  public State get(String coordinates) {
+    return states.get(coordinates);
+  }
+
+  /**
+   * Record a new state of a unit, waiting until it's on disk if it's a deploy
+   *
+   * @param coordinates the maven coordinates
+   * @param state the new state
+   */
+  public void record(String coordinates, State state) throws IOException {
+    var line = ByteBuffer.wrap((coordinates + " " + state + "\n").getBytes(StandardCharsets.UTF_8));
+    long position;
+    synchronized (this) {
+      while (line.hasRemaining()) {
+        channel.write(line);
+      }
+      position = written += line.limit();
+    }
+    records.incrementAndGet();
+    if (state == State.DEPLOYED) {
+      sync(position);
+    }
+  }
+
+  /** Sync the journal up to a position, unless another sync already covered it */
+  private void sync(long position) throws IOException {
+    if (synced >= position) return;
+    sync.lock();
+    try {
+      if (synced >= position) return;
+      long target;
+      synchronized (this) {
+        target = written;
+      }
+      channel.force(false);
+      synced = target;
+      syncs.incrementAndGet();
+    } finally {
+      sync.unlock();
+    }
+  }
+
+  /** The states recorded in this run */
+  public int getRecords() {
+    return records.get();
+  }
+
+  /** The syncs of the journal file */
+  public int getSyncs() {
+    return syncs.get();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      long end;
+      synchronized (this) {
+        end = written;
+      }
+      sync(end);
+    } finally {
+      channel.close();
+    }
+  }
+}
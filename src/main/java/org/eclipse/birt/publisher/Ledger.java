@@ -0,0 +1,159 @@
+package org.eclipse.birt.publisher;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent ledger of the deployed units.
+ *
+ * <p>For each maven coordinates deployed to a repository, the ledger keeps the hashes of the inputs
+ * it was deployed from: the jar, the sources, the generated pom and the signing key. A unit whose
+ * inputs are all unchanged doesn't need to be deployed again to the same repository. The entries
+ * are appended to the ledger file as the deploys complete, one {@code <repository> <coordinates>
+ * <jar> <sources> <pom> <key>} line each, and the file is compacted when it's loaded.
+ */
+public class Ledger {
+
+  private static final Logger log = LoggerFactory.getLogger(Ledger.class);
+
+  // Written for a missing input
+  private static final String NONE = "-";
+
+  /**
+   * The input hashes of a deployed unit, null for a missing input
+   *
+   * @param jar the jar hash
+   * @param sources the source jar hash
+   * @param pom the generated pom hash
+   * @param key the signing key hash
+   */
+  public static record Entry(String jar, String sources, String pom, String key) {
+
+    /** The inputs that changed since a previous deploy */
+    public List<String> changes(Entry previous) {
+      var changes = new ArrayList<String>();
+      if (!Objects.equals(jar, previous.jar)) changes.add("jar");
+      if (!Objects.equals(sources, previous.sources)) changes.add("sources");
+      if (!Objects.equals(pom, previous.pom)) changes.add("pom");
+      if (!Objects.equals(key, previous.key)) changes.add("key");
+      return changes;
+    }
+  }
+
+  private final Path file;
+
+  // By repository and coordinates, separated by a space
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  /**
+   * Load the ledger
+   *
+   * @param file the ledger file, created when the first deploy is recorded
+   */
+  public Ledger(Path file) {
+    this.file = file;
+    try {
+      load();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void load() throws IOException {
+    if (Files.notExists(file)) {
+      return;
+    }
+    var lines = 0;
+    for (var line : Files.readAllLines(file)) {
+      lines++;
+      var parts = line.split(" ");
+      // Torn line of an interrupted run
+      if (parts.length != 6) continue;
+      entries.put(
+          key(parts[0], parts[1]),
+          new Entry(value(parts[2]), value(parts[3]), value(parts[4]), value(parts[5])));
+    }
+    log.debug("Loaded {} deployed units from {}", entries.size(), file);
+
+    // Drop the superseded entries
+    if (lines > entries.size()) {
+      var kept = new ArrayList<String>(entries.size());
+      entries.forEach((key, entry) -> kept.add(line(key, entry)));
+      var temp = file.resolveSibling(file.getFileName() + ".tmp");
+      Files.write(temp, kept);
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /** The sha-256 of some content, in hex */
+  public static String hash(byte[] content) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String value(String text) {
+    return NONE.equals(text) ? null : text;
+  }
+
+  private static String text(String value) {
+    return value == null ? NONE : value;
+  }
+
+  private static String key(String repository, String coordinates) {
+    return repository + " " + coordinates;
+  }
+
+  private static String line(String key, Entry entry) {
+    return String.join(
+        " ", key, text(entry.jar), text(entry.sources), text(entry.pom), text(entry.key));
+  }
+
+  /**
+   * Get the inputs of the last deploy to a repository
+   *
+   * @param repository the url of the target repository
+   * @param coordinates the maven coordinates
+   * @return the entry, null if never deployed there
+   */
+  public Entry get(String repository, String coordinates) {
+    return entries.get(key(repository, coordinates));
+  }
+
+  /**
+   * Record a completed deploy
+   *
+   * @param repository the url of the target repository
+   * @param coordinates the maven coordinates
+   * @param entry the inputs of the deploy
+   */
+  public void put(String repository, String coordinates, Entry entry) {
+    var key = key(repository, coordinates);
+    entries.put(key, entry);
+    synchronized (this) {
+      try {
+        Files.createDirectories(file.getParent());
+        Files.writeString(
+            file, line(key, entry) + "\n", StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+      } catch (IOException e) {
+        log.warn("Unable to record the deploy of {}: {}", coordinates, e.toString());
+      }
+    }
+  }
+}
@@ -2,6 +2,7 @@ package org.eclipse.birt.publisher;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.List;
 
 public class Main {
 
@@ -11,9 +12,15 @@ public class Main {
 
     var maven = new Maven(base, config.getMaven());
 
-    var sites = config.getSites().stream().map(x -> new Site(x.name, x.url)).toList();
+    var sites =
+        config.getSites().stream().map(x -> new Site(x.name, new Mirrors(x.getUrls()))).toList();
     var publisher = new Publisher(base, config, maven, sites);
 
-    publisher.publish();
+    try {
+      // Continue the journal of an interrupted or failed run
+      publisher.publish(List.of(args).contains("--resume"));
+    } finally {
+      Client.close();
+    }
   }
 }
@@ -1,8 +1,10 @@
 package org.eclipse.birt.publisher;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -32,6 +34,7 @@ import org.eclipse.aether.repository.RemoteRepository;
 import org.eclipse.aether.resolution.ArtifactRequest;
 import org.eclipse.aether.resolution.ArtifactResolutionException;
 import org.eclipse.aether.supplier.RepositorySystemSupplier;
+import org.eclipse.aether.transfer.ArtifactNotFoundException;
 import org.eclipse.aether.util.repository.AuthenticationBuilder;
 import org.eclipse.birt.publisher.Config.MavenConfig;
 import org.slf4j.Logger;
@@ -58,7 +61,12 @@ public class Maven {
   private final RemoteRepository central;
   private final RemoteRepository remote;
 
+  private final MavenCentral checks;
+  private final boolean download;
+  private final ResolutionCache cache;
+
   private final GnupgSignatureArtifactGeneratorFactory gpgFactory;
+  private final String signingKey;
 
   private final Settings settings;
 
@@ -85,6 +93,7 @@ public class Maven {
       }
     }
 
+    this.signingKey = getSigningKey(config);
     this.gpgFactory =
         new GnupgSignatureArtifactGeneratorFactory(
             supplier.getArtifactPredicateFactory(),
@@ -95,10 +104,38 @@ public class Maven {
     this.system = system;
     this.session = session;
     this.central = central;
+    this.checks = new MavenCentral(MAVEN_CENTRAL);
+    this.download = config.resolveDownload;
+    this.cache =
+        new ResolutionCache(base.resolve("resolve.cache"), Duration.ofHours(config.resolveTtl));
     this.settings = getSettings();
     this.remote = getRemoteRepository(config, local);
   }
 
+  private static String getSigningKey(MavenConfig config) {
+    if (config.gpgKey == null) {
+      return null;
+    }
+    var key = Path.of(config.gpgKey);
+    try {
+      var content = Files.exists(key) ? Files.readAllBytes(key) : config.gpgKey.getBytes();
+      var fingerprint = config.gpgFingerprint == null ? "" : config.gpgFingerprint;
+      return Ledger.hash((Ledger.hash(content) + fingerprint).getBytes());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** The url of the repository the units are deployed to */
+  public String getRepository() {
+    return remote.getUrl();
+  }
+
+  /** The identity of the signing key, null if the artifacts are not signed */
+  public String getSigningKey() {
+    return signingKey;
+  }
+
   private RemoteRepository getRemoteRepository(MavenConfig config, Path local) {
     var id = config.repoId;
     var url = config.repoUrl;
@@ -182,12 +219,16 @@ public class Maven {
   }
 
   /**
-   * Resolve an artifact
+   * Resolve an artifact, checking only that it exists unless downloads are enabled
    *
    * @param artifact the artifact to resolve
    * @return true if the artifact is resolved, false otherwise
+   * @throws IOException if the repository can't tell
    */
-  private boolean resolve(Artifact artifact) {
+  private boolean resolve(Artifact artifact) throws IOException {
+    if (!download) {
+      return checks.exists(artifact);
+    }
     log.debug("Resolving {}", artifact);
     var request = new ArtifactRequest().setArtifact(artifact).addRepository(central);
     try {
@@ -197,7 +238,15 @@ public class Maven {
         return true;
       }
     } catch (ArtifactResolutionException e) {
-      // ignore
+      // Missing only if the repository said so, not if it couldn't answer
+      for (var result : e.getResults()) {
+        for (var exception : result.getExceptions()) {
+          if (!(exception instanceof ArtifactNotFoundException)) {
+            throw new IOException(
+                String.format("Unable to resolve %s: %s", artifact, exception.getMessage()), e);
+          }
+        }
+      }
     }
     log.debug("Missing {}", artifact);
     return false;
@@ -208,10 +257,16 @@ public class Maven {
    *
    * @param coordinates The artifact coordinates in the format {@code
    *     <groupId>:<artifactId>[:<extension>[:<classifier>]]:<version>}
-   * @return true if the artifact is resolved, false otherwise
+   * @return true if the artifact is resolved, false if it's missing
+   * @throws UncheckedIOException if the repository can't tell, the answer is not cached
    */
   public boolean resolve(String coordinates) {
-    return resolve(new DefaultArtifact(coordinates));
+    return cache.resolve(coordinates, x -> resolve(new DefaultArtifact(x)));
+  }
+
+  /** The cache of the resolved artifacts */
+  public ResolutionCache getCache() {
+    return cache;
   }
 
   /**
@@ -223,16 +278,41 @@ public class Maven {
    * @return true if the artifact is resolved, false otherwise
    */
   public boolean resolve(String groupId, String artifactId, String version) {
-    return resolve(new DefaultArtifact(groupId, artifactId, "jar", version));
+    return resolve(String.join(":", groupId, artifactId, version));
+  }
+
+  /** Signed artifacts ready to deploy, closing it deletes the signatures */
+  public static final class Deployment implements AutoCloseable {
+
+    private final DeployRequest request;
+
+    private final List<Path> tempFiles;
+
+    private Deployment(DeployRequest request, List<Path> tempFiles) {
+      this.request = request;
+      this.tempFiles = tempFiles;
+    }
+
+    @Override
+    public void close() {
+      // Delete the temporary files
+      for (var temp : tempFiles) {
+        try {
+          Files.deleteIfExists(temp);
+        } catch (IOException e) {
+          // Ignore errors
+        }
+      }
+    }
   }
 
   /**
-   * Publish a list of artifacts to the remote repository
+   * Sign a list of artifacts for the remote repository
    *
    * @param artifacts the list of artifacts to publish
-   * @throws DeploymentException if an error occurs while publishing the artifacts
+   * @return the deployment of the artifacts and their signatures
    */
-  private void publish(List<Artifact> artifacts) throws DeploymentException {
+  private Deployment prepare(List<Artifact> artifacts) {
     var request = new DeployRequest();
 
     for (var artifact : artifacts) {
@@ -243,21 +323,22 @@ public class Maven {
     request.setRepository(remote);
 
     // Sign the artifacts
-    var tempFiles = sign(request, artifacts);
+    return new Deployment(request, sign(request, artifacts));
+  }
+
+  /**
+   * Deploy signed artifacts to the remote repository
+   *
+   * @param deployment the signed artifacts
+   * @throws IOException if an error occurs while publishing the artifacts
+   */
+  public void deploy(Deployment deployment) throws IOException {
     try {
-      system.deploy(session, request);
-    } finally {
-      // Delete the temporary files
-      for (var temp : tempFiles) {
-        try {
-          Files.deleteIfExists(temp);
-        } catch (IOException e) {
-          // Ignore errors
-        }
-      }
+      system.deploy(session, deployment.request);
+    } catch (DeploymentException e) {
+      throw new IOException(e);
     }
-
-    log.debug("Published {} artifacts", artifacts.size());
+    log.debug("Published {} artifacts", deployment.request.getArtifacts().size());
   }
 
   private List<Path> sign(DeployRequest request, List<Artifact> artifacts) {
@@ -302,14 +383,16 @@ public class Maven {
   }
 
   /**
-   * Publish a Maven artifact
+   * Sign a Maven artifact, to deploy it later
    *
    * @param pom the pom file
    * @param jar the jar file
    * @param sourceJar the source jar file
-   * @throws IOException if an error occurs while reading the pom file or publishing the artifact
+   * @return the signed artifacts
+   * @throws IOException if an error occurs while reading the pom file
    */
-  public void publish(Path pom, Path jar, Path sourceJar, Path javadocJar) throws IOException {
+  public Deployment prepare(Path pom, Path jar, Path sourceJar, Path javadocJar)
+      throws IOException {
     var model = readPom(pom);
     var groupId = model.getGroupId();
     var artifactId = model.getArtifactId();
@@ -335,10 +418,6 @@ public class Maven {
           new DefaultArtifact(groupId, artifactId, "javadoc", "jar", version).setPath(javadocJar));
     }
 
-    try {
-      publish(artifacts);
-    } catch (DeploymentException e) {
-      throw new IOException(e);
-    }
+    return prepare(artifacts);
   }
 }
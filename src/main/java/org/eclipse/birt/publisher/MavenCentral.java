@@ -0,0 +1,71 @@
+package org.eclipse.birt.publisher;
+
+import java.io.IOException;
+import org.eclipse.aether.artifact.Artifact;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Existence checks against a remote maven repository.
+ *
+ * <p>An artifact exists if a {@code HEAD} request of its file succeeds, so no artifact body is ever
+ * transferred. Repositories that don't allow {@code HEAD} are asked for the small {@code .sha1}
+ * file of the artifact instead.
+ */
+public class MavenCentral {
+
+  private static final Logger log = LoggerFactory.getLogger(MavenCentral.class);
+
+  private final String url;
+
+  /**
+   * Create the checks of a repository
+   *
+   * @param url the repository url, without the trailing slash
+   */
+  public MavenCentral(String url) {
+    this.url = url;
+  }
+
+  /** The url of the artifact file in the repository */
+  public String url(Artifact artifact) {
+    var name =
+        new StringBuilder(artifact.getArtifactId()).append('-').append(artifact.getVersion());
+    if (!artifact.getClassifier().isEmpty()) {
+      name.append('-').append(artifact.getClassifier());
+    }
+    name.append('.').append(artifact.getExtension());
+    return String.join(
+        "/",
+        url,
+        artifact.getGroupId().replace('.', '/'),
+        artifact.getArtifactId(),
+        artifact.getVersion(),
+        name);
+  }
+
+  /**
+   * Check whether an artifact exists
+   *
+   * @param artifact the artifact
+   * @return true if the artifact exists, false if it's missing
+   * @throws IOException if the repository can't tell
+   */
+  public boolean exists(Artifact artifact) throws IOException {
+    var file = url(artifact);
+    var status = Client.head(file);
+    if (status == 405 || status == 501) {
+      // HEAD not allowed, the checksum is a few bytes
+      status = Client.get(file + ".sha1");
+    }
+    if (status == 200) {
+      log.debug("Found {}", artifact);
+      return true;
+    }
+    if (status == 404) {
+      log.debug("Missing {}", artifact);
+      return false;
+    }
+    throw new IOException(String.format("Unable to check %s: status %d", artifact, status));
+  }
+}
@@ -0,0 +1,362 @@
+package org.eclipse.birt.publisher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.eclipse.birt.publisher.metadata.Artifact;
+import org.eclipse.birt.publisher.metadata.InstallableUnit;
+import org.eclipse.birt.publisher.metadata.Interner;
+import org.eclipse.birt.publisher.metadata.MavenCoordinates;
+import org.eclipse.birt.publisher.metadata.PropertyTable;
+import org.eclipse.birt.publisher.metadata.ProvidedCapability;
+import org.eclipse.birt.publisher.metadata.RequiredCapability;
+
+/**
+ * Streaming parser for p2 {@code content.xml} and {@code artifacts.xml} files.
+ *
+ * <p>The metadata objects are created directly from the pull parser events, so only the units and
+ * artifacts we keep are held in memory. Only the direct children of a unit or an artifact are
+ * considered, nested elements like {@code metaRequirements} are skipped.
+ */
+public class MetadataParser {
+
+  /** Which unit and artifact properties are kept after parsing. */
+  public static enum Retention {
+    /** Keep all the properties */
+    ALL,
+    /** Keep only the properties read by the publisher and the translations they refer to */
+    USED;
+
+    /**
+     * Get the retention mode from the {@code metadata.properties} system property
+     *
+     * @return the configured mode, {@link #USED} by default
+     */
+    public static Retention configured() {
+      var value = System.getProperty(Config.METADATA_PROPERTIES);
+      return value == null ? USED : valueOf(value.toUpperCase(Locale.ROOT));
+    }
+  }
+
+  private static final String TRANSLATION = "df_LT.";
+
+  private static final Set<String> USED_KEYS =
+      Set.of(
+          "org.eclipse.equinox.p2.name",
+          "org.eclipse.equinox.p2.description",
+          "maven-groupId",
+          "maven-artifactId",
+          "maven-version",
+          "maven-classifier",
+          "maven-type",
+          "maven-wrapped-groupId",
+          "maven-wrapped-artifactId",
+          "maven-wrapped-version",
+          "maven-wrapped-classifier",
+          "maven-wrapped-type",
+          "download.checksum.sha-1",
+          "download.checksum.sha-256",
+          "download.checksum.sha-512",
+          "download.size");
+
+  private final Site site;
+
+  private final Retention retention;
+
+  public MetadataParser(Site site) {
+    this(site, Retention.configured());
+  }
+
+  public MetadataParser(Site site, Retention retention) {
+    this.site = site;
+    this.retention = retention;
+  }
+
+  public Retention getRetention() {
+    return retention;
+  }
+
+  /**
+   * Parse the installable units from a {@code content.xml} stream
+   *
+   * @param stream the xml stream
+   * @return the list of units
+   * @throws IOException if the stream can't be read or parsed
+   */
+  public List<InstallableUnit> parseUnits(InputStream stream) throws IOException {
+    return parse(stream, "unit", this::readUnit);
+  }
+
+  /**
+   * Parse the artifacts from an {@code artifacts.xml} stream
+   *
+   * @param stream the xml stream
+   * @return the list of artifacts
+   * @throws IOException if the stream can't be read or parsed
+   */
+  public List<Artifact> parseArtifacts(InputStream stream) throws IOException {
+    return parse(stream, "artifact", this::readArtifact);
+  }
+
+  /**
+   * Parse the child locations from a {@code compositeContent.xml} or {@code compositeArtifacts.xml}
+   * stream
+   *
+   * @param stream the xml stream
+   * @return the list of child locations, absolute or relative to the composite site
+   * @throws IOException if the stream can't be read or parsed
+   */
+  public List<String> parseChildren(InputStream stream) throws IOException {
+    return parse(stream, "child", reader -> attribute(reader, "location"));
+  }
+
+  @FunctionalInterface
+  private static interface ElementReader<T> {
+    T read(XMLStreamReader reader) throws XMLStreamException;
+  }
+
+  private static XMLInputFactory newFactory() {
+    var factory = XMLInputFactory.newFactory();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+
+  private <T> List<T> parse(InputStream stream, String element, ElementReader<T> parser)
+      throws IOException {
+    var items = new ArrayList<T>();
+    try {
+      var reader = newFactory().createXMLStreamReader(stream);
+      try {
+        while (reader.hasNext()) {
+          if (reader.next() == XMLStreamConstants.START_ELEMENT
+              && element.equals(reader.getLocalName())) {
+            items.add(parser.read(reader));
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException e) {
+      throw new IOException("Failed to parse XML file", e);
+    }
+    return items;
+  }
+
+  /** Move to the next child element, returns false at the end of the current element. */
+  private static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+    while (reader.hasNext()) {
+      var event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) return true;
+      if (event == XMLStreamConstants.END_ELEMENT) return false;
+    }
+    return false;
+  }
+
+  /** Skip the current element including all its children. */
+  private static void skip(XMLStreamReader reader) throws XMLStreamException {
+    var depth = 1;
+    while (depth > 0 && reader.hasNext()) {
+      var event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) depth++;
+      if (event == XMLStreamConstants.END_ELEMENT) depth--;
+    }
+  }
+
+  private static <T> void readChildren(
+      XMLStreamReader reader, String element, ElementReader<T> parser, List<T> items)
+      throws XMLStreamException {
+    while (nextChild(reader)) {
+      if (element.equals(reader.getLocalName())) {
+        items.add(parser.read(reader));
+      } else {
+        skip(reader);
+      }
+    }
+  }
+
+  private InstallableUnit readUnit(XMLStreamReader reader) throws XMLStreamException {
+    var unit = new InstallableUnit();
+    var props = new HashMap<String, String>();
+
+    unit.id = Interner.intern(reader.getAttributeValue(null, "id"));
+    unit.version = Interner.intern(reader.getAttributeValue(null, "version"));
+
+    while (nextChild(reader)) {
+      switch (reader.getLocalName()) {
+        case "properties" -> readProperties(reader, props);
+        case "provides" -> readChildren(reader, "provided", this::readProvided, unit.provides);
+        case "requires" -> readChildren(reader, "required", this::readRequired, unit.requires);
+        case "artifacts" -> readChildren(reader, "artifact", this::readArtifactKey, unit.artifacts);
+        default -> skip(reader);
+      }
+    }
+
+    var properties = properties(props);
+
+    unit.name = getProperty(properties, "org.eclipse.equinox.p2.name");
+    unit.description = getProperty(properties, "org.eclipse.equinox.p2.description");
+    unit.maven = parseMaven(properties);
+    unit.properties = properties;
+    unit.site = site;
+
+    // Trim the lists to flat arrays
+    unit.provides = List.copyOf(unit.provides);
+    unit.requires = List.copyOf(unit.requires);
+    unit.artifacts = List.copyOf(unit.artifacts);
+
+    return unit;
+  }
+
+  private Artifact readArtifact(XMLStreamReader reader) throws XMLStreamException {
+    var artifact = new Artifact();
+    var props = new HashMap<String, String>();
+
+    artifact.id = Interner.intern(reader.getAttributeValue(null, "id"));
+    artifact.version = Interner.intern(reader.getAttributeValue(null, "version"));
+
+    while (nextChild(reader)) {
+      if ("properties".equals(reader.getLocalName())) {
+        readProperties(reader, props);
+      } else {
+        skip(reader);
+      }
+    }
+
+    var properties = properties(props);
+
+    artifact.maven = parseMaven(properties);
+    artifact.properties = properties;
+    artifact.sha1 = getProperty(properties, "download.checksum.sha-1");
+    artifact.sha256 = getProperty(properties, "download.checksum.sha-256");
+    artifact.sha512 = getProperty(properties, "download.checksum.sha-512");
+    artifact.size = getProperty(properties, "download.size");
+
+    site.locate(artifact);
+
+    return artifact;
+  }
+
+  /** The artifact keys of a unit, only the id, version and classifier are set */
+  private Artifact readArtifactKey(XMLStreamReader reader) throws XMLStreamException {
+    var artifact = new Artifact();
+
+    artifact.id = attribute(reader, "id");
+    artifact.version = attribute(reader, "version");
+    artifact.classifier = attribute(reader, "classifier");
+    artifact.properties = Map.of();
+
+    skip(reader);
+    return artifact;
+  }
+
+  private ProvidedCapability readProvided(XMLStreamReader reader) throws XMLStreamException {
+    var provided = new ProvidedCapability();
+
+    provided.name = attribute(reader, "name");
+    provided.namespace = attribute(reader, "namespace");
+    provided.version = Interner.version(attribute(reader, "version"));
+
+    skip(reader);
+    return Interner.intern(provided);
+  }
+
+  private RequiredCapability readRequired(XMLStreamReader reader) throws XMLStreamException {
+    var required = new RequiredCapability();
+
+    required.name = attribute(reader, "name");
+    required.namespace = attribute(reader, "namespace");
+    required.range = Interner.range(attribute(reader, "range"));
+    required.optional = "true".equals(attribute(reader, "optional"));
+    required.greedy = !"false".equals(attribute(reader, "greedy"));
+
+    skip(reader);
+    return Interner.intern(required);
+  }
+
+  private void readProperties(XMLStreamReader reader, Map<String, String> props)
+      throws XMLStreamException {
+    while (nextChild(reader)) {
+      if ("property".equals(reader.getLocalName())) {
+        var name = reader.getAttributeValue(null, "name");
+        if (name != null && isRetained(name)) {
+          var value = reader.getAttributeValue(null, "value");
+          props.put(name, value == null ? "" : value);
+        }
+      }
+      skip(reader);
+    }
+  }
+
+  private boolean isRetained(String name) {
+    return retention == Retention.ALL || USED_KEYS.contains(name) || name.startsWith(TRANSLATION);
+  }
+
+  /** The compact properties, translations are resolved by the table when a value is read. */
+  private Map<String, String> properties(Map<String, String> props) {
+    if (retention == Retention.USED) {
+      // Drop the translations no retained value refers to, like the license text
+      var referenced = new HashSet<String>();
+      for (var value : props.values()) {
+        if (value.startsWith("%")) referenced.add(TRANSLATION + value.substring(1));
+      }
+      props.keySet().removeIf(key -> key.startsWith(TRANSLATION) && !referenced.contains(key));
+    }
+    return PropertyTable.of(props);
+  }
+
+  private static String attribute(XMLStreamReader reader, String name) {
+    var value = reader.getAttributeValue(null, name);
+    return value == null ? "" : Interner.intern(value);
+  }
+
+  private MavenCoordinates parseMaven(Map<String, String> props) {
+    var mavenGroupId = getProperty(props, "maven-groupId", "maven-wrapped-groupId");
+    var mavenArtifactId = getProperty(props, "maven-artifactId", "maven-wrapped-artifactId");
+    var mavenVersion = getProperty(props, "maven-version", "maven-wrapped-version");
+    var mavenClassifier = getProperty(props, "maven-classifier", "maven-wrapped-classifier");
+    var mavenType = getProperty(props, "maven-type", "maven-wrapped-type");
+
+    if (mavenGroupId == null || mavenArtifactId == null) {
+      return null;
+    }
+
+    // Remove -SNAPSHOT
+    if (mavenVersion != null && mavenVersion.endsWith("-SNAPSHOT")) {
+      mavenVersion = mavenVersion.substring(0, mavenVersion.length() - 9);
+    }
+
+    var maven = new MavenCoordinates();
+    maven.groupId = mavenGroupId;
+    maven.artifactId = mavenArtifactId;
+    maven.version = Interner.intern(mavenVersion);
+    maven.classifier = mavenClassifier;
+    maven.type = mavenType;
+    maven.properties = Map.of();
+
+    return maven;
+  }
+
+  private String getProperty(Map<String, String> props, String key, String... altKeys) {
+    var value = props.get(key);
+    if (value != null && value.isBlank()) value = null;
+    if (value == null) {
+      for (var altKey : altKeys) {
+        value = props.get(altKey);
+        if (value != null && value.isBlank()) value = null;
+        if (value != null) break;
+      }
+    }
+    return value;
+  }
+}
@@ -0,0 +1,283 @@
+package org.eclipse.birt.publisher;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.birt.publisher.metadata.Checksum;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The mirrors of an update site.
+ *
+ * <p>The mirrors are ranked by their probed latency and by the throughput of the downloads so far.
+ * A file is downloaded from the best healthy mirror, and if that takes much longer than expected, a
+ * second request is sent to the next mirror. Whichever completes first wins, the other one is
+ * cancelled. A mirror that fails to connect or answers with a server error is used only as a last
+ * resort, until it serves a download again.
+ */
+public class Mirrors {
+
+  private static final Logger log = LoggerFactory.getLogger(Mirrors.class);
+
+  private static final Duration HEDGE_DELAY =
+      Duration.ofMillis(Long.getLong(Config.HTTP_HEDGE_DELAY, 5000));
+
+  // Weight of the latest sample in the moving averages
+  private static final double SMOOTHING = 0.3;
+
+  private static final class Mirror {
+
+    private final String url;
+
+    private volatile boolean healthy = true;
+
+    // Moving averages, zero until measured
+    private volatile double latency; // nanos
+    private volatile double throughput; // bytes per nano
+
+    private Mirror(String url) {
+      this.url = url;
+    }
+
+    /** The expected nanos to download a file of the given size */
+    private double estimate(long size) {
+      return latency + (throughput > 0 && size > 0 ? size / throughput : 0);
+    }
+
+    private synchronized void record(long size, long nanos) {
+      var sample = (double) size / Math.max(nanos, 1);
+      throughput = throughput == 0 ? sample : throughput + SMOOTHING * (sample - throughput);
+    }
+
+    @Override
+    public String toString() {
+      return url;
+    }
+  }
+
+  private final List<Mirror> mirrors;
+
+  private final Duration hedgeDelay;
+
+  /**
+   * Create the mirrors of a site
+   *
+   * @param urls the mirror urls, in order of preference
+   */
+  public Mirrors(List<String> urls) {
+    this(urls, HEDGE_DELAY);
+  }
+
+  Mirrors(List<String> urls, Duration hedgeDelay) {
+    this.mirrors = urls.stream().map(Mirror::new).toList();
+    this.hedgeDelay = hedgeDelay;
+  }
+
+  /** The url of the preferred mirror, used for the metadata */
+  public String getUrl() {
+    return mirrors.getFirst().url;
+  }
+
+  public List<String> getUrls() {
+    return mirrors.stream().map(x -> x.url).toList();
+  }
+
+  /**
+   * The mirrors of a child location of the site
+   *
+   * @param url the child url, resolved against the preferred mirror
+   * @return the child mirrors, only the given url if it's not below the site
+   */
+  public Mirrors resolve(String url) {
+    var base = getUrl() + "/";
+    if (!url.startsWith(base)) {
+      return new Mirrors(List.of(url), hedgeDelay);
+    }
+    var path = url.substring(base.length());
+    return new Mirrors(mirrors.stream().map(x -> x.url + "/" + path).toList(), hedgeDelay);
+  }
+
+  /**
+   * Measure the latency of each mirror with a {@code HEAD} request, unreachable or failing mirrors
+   * are used only as a last resort
+   *
+   * @param path a file of the site, relative to the mirror url
+   */
+  public void probe(String path) {
+    if (mirrors.size() < 2) {
+      return;
+    }
+    IoScheduler.get()
+        .run(
+            mirrors,
+            mirror -> {
+              try {
+                // Not counting the wait for a connection, the later mirrors wait longer
+                var timed = Client.timedHead(mirror.url + "/" + path);
+                mirror.latency = timed.nanos();
+                mirror.healthy = timed.status() < 500;
+              } catch (IOException e) {
+                mirror.healthy = false;
+              }
+              log.info(
+                  "Mirror {}: {}, {} ms",
+                  mirror.url,
+                  mirror.healthy ? "healthy" : "failing",
+                  (long) (mirror.latency / 1e6));
+            });
+  }
+
+  private List<Mirror> ranked(long size) {
+    var ranked = new ArrayList<>(mirrors);
+    // Stable, so the configured order decides between unmeasured mirrors
+    ranked.sort(
+        Comparator.comparing((Mirror x) -> !x.healthy).thenComparingDouble(x -> x.estimate(size)));
+    return ranked;
+  }
+
+  /**
+   * Download a file from the best mirror, hedging slow downloads with the next mirror
+   *
+   * @param path the file path relative to the mirror url
+   * @param file the local file
+   * @param size the expected file size, zero if unknown
+   * @param checksum the expected checksum, null to skip the verification
+   */
+  public void download(String path, Path file, long size, Checksum checksum) {
+    if (Client.isCached(file, checksum)) {
+      return;
+    }
+
+    var ranked = ranked(size);
+    if (ranked.size() < 2) {
+      download(ranked.getFirst(), path, file, checksum);
+      return;
+    }
+
+    // The first mirror writes straight to the file, so its partial file can be resumed if all fail
+    var hedgeFile = file.resolveSibling(file.getFileName() + ".hedge");
+    var delay = hedgeDelay(ranked.getFirst(), size);
+
+    var failure = (Exception) null;
+    try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      var completion = new ExecutorCompletionService<Mirror>(executor);
+      var running = new ArrayList<Future<Mirror>>();
+      var next = 0;
+
+      running.add(submit(completion, ranked.get(next++), path, file, checksum));
+      var done = completion.poll(delay.toNanos(), TimeUnit.NANOSECONDS);
+      if (done == null) {
+        log.info("Hedging slow download of {} with {}", path, ranked.get(next));
+        running.add(submit(completion, ranked.get(next++), path, hedgeFile, checksum));
+      }
+
+      while (!running.isEmpty()) {
+        if (done == null) {
+          done = completion.take();
+        }
+        running.remove(done);
+        try {
+          var winner = done.get();
+          log.debug("Downloaded {} from {}", path, winner);
+          failure = null;
+          break;
+        } catch (ExecutionException e) {
+          failure = e;
+          // Fall back to the next mirror, if any
+          if (running.isEmpty() && next < ranked.size()) {
+            running.add(submit(completion, ranked.get(next++), path, hedgeFile, checksum));
+          }
+        }
+        done = null;
+      }
+
+      // Cancel the loser, closing the executor waits for it
+      running.forEach(x -> x.cancel(true));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+
+    try {
+      if (failure != null) {
+        throw new RuntimeException("Failed to download " + path, failure.getCause());
+      }
+      if (Files.notExists(file)) {
+        Files.move(hedgeFile, file, StandardCopyOption.REPLACE_EXISTING);
+        // The first download was cancelled, its partial file is of no further use
+        deletePartial(file);
+      }
+      Files.deleteIfExists(hedgeFile);
+      deletePartial(hedgeFile);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static void deletePartial(Path file) throws IOException {
+    Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".part"));
+    Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".part.validators"));
+  }
+
+  private Duration hedgeDelay(Mirror mirror, long size) {
+    // Twice the expected time once the mirror is measured, at least a tenth of the default
+    if (mirror.throughput > 0 && size > 0) {
+      var expected = (long) (2 * mirror.estimate(size));
+      return Duration.ofNanos(Math.max(expected, hedgeDelay.toNanos() / 10));
+    }
+    return hedgeDelay;
+  }
+
+  private Future<Mirror> submit(
+      ExecutorCompletionService<Mirror> completion,
+      Mirror mirror,
+      String path,
+      Path file,
+      Checksum checksum) {
+    return completion.submit(
+        () -> {
+          download(mirror, path, file, checksum);
+          return mirror;
+        });
+  }
+
+  private void download(Mirror mirror, String path, Path file, Checksum checksum) {
+    var start = System.nanoTime();
+    try {
+      Client.download(mirror.url + "/" + path, file, checksum);
+    } catch (RuntimeException e) {
+      if (!Thread.currentThread().isInterrupted() && isMirrorFailure(e)) {
+        mirror.healthy = false;
+      }
+      throw e;
+    }
+    mirror.healthy = true;
+    try {
+      mirror.record(Files.size(file), System.nanoTime() - start);
+    } catch (IOException e) {
+      // Not measured
+    }
+  }
+
+  /** Whether a failure is the mirror's, a missing file or a client error doesn't count */
+  private static boolean isMirrorFailure(Throwable e) {
+    for (var cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof Client.StatusException status) {
+        return status.getStatus() >= 500;
+      }
+    }
+    // Connection failures, timeouts and corrupted transfers
+    return true;
+  }
+}
@@ -0,0 +1,246 @@
+package org.eclipse.birt.publisher;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Staged pipeline with bounded queues between the stages.
+ *
+ * <p>An item moves to the next stage as soon as a stage is done with it, so the stages work on
+ * different items at the same time. A full queue blocks the stage feeding it, the time it waits is
+ * the back-pressure of the stage behind the queue. An item that fails is dropped and its failure is
+ * collected, the other items go on. An {@link Error} stops the whole pipeline instead.
+ *
+ * @param <T> the item
+ */
+public class Pipeline<T> {
+
+  /** The work of a stage on an item */
+  @FunctionalInterface
+  public static interface Step<T> {
+    void run(T item) throws IOException;
+  }
+
+  /**
+   * The failure of an item
+   *
+   * @param item the item
+   * @param stage the name of the stage it failed in
+   * @param error the failure
+   */
+  public static record Failure<T>(T item, String stage, Throwable error) {}
+
+  /**
+   * The counters of a stage
+   *
+   * @param stage the stage name
+   * @param workers the concurrent workers of the stage
+   * @param items the items done
+   * @param busyMillis the total time the workers spent on the items
+   * @param blockedMillis the total time the previous stage waited for room in the queue
+   * @param idleMillis the total time the workers waited for an item
+   * @param maxQueued the most items waiting in the queue at once
+   */
+  public static record Metrics(
+      String stage,
+      int workers,
+      long items,
+      long busyMillis,
+      long blockedMillis,
+      long idleMillis,
+      int maxQueued) {
+
+    @Override
+    public String toString() {
+      return String.format(
+          "%s: %d items, %d workers, busy %d ms, blocked %d ms, idle %d ms, max queued %d",
+          stage, items, workers, busyMillis, blockedMillis, idleMillis, maxQueued);
+    }
+  }
+
+  // Sent down the queues once the previous stage is done
+  private static final Object END = new Object();
+
+  private final class Stage {
+
+    private final String name;
+    private final int workers;
+    private final Step<T> step;
+
+    private BlockingQueue<Object> queue;
+
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicLong items = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+    private final AtomicLong idleNanos = new AtomicLong();
+    private final AtomicInteger maxQueued = new AtomicInteger();
+
+    private Stage(String name, int workers, Step<T> step) {
+      this.name = name;
+      this.workers = workers;
+      this.step = step;
+    }
+
+    /** Queue an item, waiting while the queue is full */
+    private void put(Object item) throws InterruptedException {
+      var start = System.nanoTime();
+      queue.put(item);
+      blockedNanos.addAndGet(System.nanoTime() - start);
+      maxQueued.accumulateAndGet(queue.size(), Math::max);
+    }
+
+    private void end() throws InterruptedException {
+      for (var i = 0; i < workers; i++) {
+        queue.put(END);
+      }
+    }
+
+    private Metrics metrics() {
+      return new Metrics(
+          name,
+          workers,
+          items.get(),
+          busyNanos.get() / 1_000_000,
+          blockedNanos.get() / 1_000_000,
+          idleNanos.get() / 1_000_000,
+          maxQueued.get());
+    }
+  }
+
+  private final int capacity;
+
+  private final List<Stage> stages = new ArrayList<>();
+
+  private final Collection<Failure<T>> failures = new ConcurrentLinkedQueue<>();
+
+  // The first error of a worker, it stops the pipeline
+  private final AtomicReference<Error> fatal = new AtomicReference<>();
+
+  /**
+   * Create a pipeline
+   *
+   * @param capacity the size of the queue in front of each stage
+   */
+  public Pipeline(int capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * Add a stage
+   *
+   * @param name the stage name, for the metrics
+   * @param workers the number of items the stage works on at once
+   * @param step the work on an item
+   */
+  public Pipeline<T> stage(String name, int workers, Step<T> step) {
+    stages.add(new Stage(name, workers, step));
+    return this;
+  }
+
+  /**
+   * Run the items through the stages and wait for all of them
+   *
+   * @param items the items, in the order they enter the first stage
+   * @return the failed items
+   * @throws Error the first error of a stage, once all the workers are stopped
+   */
+  public List<Failure<T>> run(Collection<T> items) {
+    failures.clear();
+    fatal.set(null);
+    var caller = Thread.currentThread();
+    for (var stage : stages) {
+      stage.queue = new ArrayBlockingQueue<>(capacity);
+      stage.running.set(stage.workers);
+    }
+
+    try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (var i = 0; i < stages.size(); i++) {
+        var stage = stages.get(i);
+        var next = i + 1 < stages.size() ? stages.get(i + 1) : null;
+        for (var j = 0; j < stage.workers; j++) {
+          executor.execute(
+              () -> {
+                try {
+                  work(stage, next);
+                } catch (Error e) {
+                  // Stop the workers, and the caller if it's waiting for room in the first queue
+                  if (fatal.compareAndSet(null, e)) {
+                    executor.shutdownNow();
+                    caller.interrupt();
+                  }
+                }
+              });
+        }
+      }
+
+      var first = stages.getFirst();
+      try {
+        for (var item : items) {
+          first.put(item);
+        }
+        first.end();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        executor.shutdownNow();
+        if (fatal.get() == null) {
+          throw new RuntimeException(e);
+        }
+      }
+    }
+
+    var error = fatal.get();
+    if (error != null) {
+      // Interrupted by the failed worker, not by the caller's caller
+      Thread.interrupted();
+      throw error;
+    }
+    return List.copyOf(failures);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void work(Stage stage, Stage next) {
+    try {
+      while (true) {
+        var start = System.nanoTime();
+        var item = stage.queue.take();
+        stage.idleNanos.addAndGet(System.nanoTime() - start);
+        if (item == END) break;
+
+        start = System.nanoTime();
+        try {
+          stage.step.run((T) item);
+        } catch (Exception e) {
+          failures.add(new Failure<>((T) item, stage.name, e));
+          continue;
+        } finally {
+          stage.busyNanos.addAndGet(System.nanoTime() - start);
+        }
+        stage.items.incrementAndGet();
+        if (next != null) {
+          next.put(item);
+        }
+      }
+      // The last worker out tells the next stage
+      if (stage.running.decrementAndGet() == 0 && next != null) {
+        next.end();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** The counters of each stage */
+  public List<Metrics> metrics() {
+    return stages.stream().map(Stage::metrics).toList();
+  }
+}
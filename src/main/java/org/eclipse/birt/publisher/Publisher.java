@@ -1,19 +1,32 @@
 package org.eclipse.birt.publisher;
 
 import java.io.IOException;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.jar.JarEntry;
 import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
-import java.util.regex.Pattern;
 import java.util.stream.Stream;
-import org.eclipse.birt.publisher.Config.PublishConfig;
 import org.eclipse.birt.publisher.metadata.Artifact;
 import org.eclipse.birt.publisher.metadata.InstallableUnit;
 import org.eclipse.birt.publisher.metadata.MavenCoordinates;
@@ -34,34 +47,49 @@ public class Publisher {
 
   private final List<Site> sites;
 
+  private final ArtifactStore store;
+
+  private final Ledger ledger;
+
+  private SiteIndex index;
+
   public Publisher(Path base, Config config, Maven maven, List<Site> sites) {
     this.base = base;
     this.config = config;
     this.maven = maven;
     this.sites = sites;
+
+    var store = System.getProperty(Config.ARTIFACT_STORE);
+    this.store = new ArtifactStore(store == null ? base.resolve("store") : Path.of(store));
+    this.ledger = new Ledger(base.resolve("publish.ledger"));
   }
 
-  public void publish() throws IOException {
+  /**
+   * Publish the units
+   *
+   * @param resume true to skip the units deployed by the previous run, as recorded in its journal
+   * @throws IOException if some units failed, after all the others are published
+   */
+  public void publish(boolean resume) throws IOException {
     // Customize maven group id
     var group = config.getMaven().group;
 
     // Load sites
-    Tasks.processInParallel(sites, x -> x.load(base));
+    var scheduler = IoScheduler.get();
+    scheduler.run(sites, x -> x.load(base));
+    scheduler.run(sites, Site::probe);
 
     // Find units to publish
     var units =
         findPublishCandidates().values().stream()
+            .filter(Objects::nonNull) // exclude excluded units
             .filter(x -> !x.external) // exclude external units
             .filter(x -> !x.id.endsWith(".feature.jar")) // exclude feature jars
             .toList();
-
-    // Download them in advance
-    var artifacts =
-        units.stream()
-            .flatMap(unit -> Stream.of(unit.artifact, unit.sourceArtifact))
-            .filter(Objects::nonNull)
-            .toList();
-    Tasks.processInParallel(artifacts, this::download);
+    if (config.getMaven().resolve) {
+      var cache = maven.getCache();
+      log.info("Resolution cache: {} hits, {} misses", cache.getHits(), cache.getMisses());
+    }
 
     // Update group id
     if (group != null) {
@@ -81,19 +109,285 @@ public class Publisher {
       }
     }
 
-    // Publish units
-    Tasks.processInParallel(units, x -> publish(x, group));
-  }
-
-  private void publish(ResolvedUnit unit, String group) throws IOException {
     // Check if we have maven coordinates
-    if (unit.maven == null || unit.maven.groupId == null) {
-      log.warn("No maven coordinates found for {}", unit.id);
+    List<Job> jobs = new ArrayList<>();
+    for (var unit : units) {
+      if (unit.maven == null || unit.maven.groupId == null) {
+        log.warn("No maven coordinates found for {}", unit.id);
+        continue;
+      }
+      jobs.add(new Job(unit));
+    }
+
+    // Publish units, largest downloads first so no big transfer starts last
+    jobs.sort(Comparator.comparingLong((Job x) -> size(x.unit)).reversed());
+
+    // Skip the units deployed before from the same inputs
+    jobs = plan(jobs, group);
+    if (Boolean.getBoolean(Config.PUBLISH_DRY_RUN)) {
+      log.info("Dry run, nothing published");
       return;
     }
 
-    log.info("Publishing {}", unit.id);
+    try (var journal =
+        new Journal(base.resolve("publish.journal"), maven.getRepository(), resume)) {
+      if (resume) {
+        jobs = resume(jobs, journal);
+      }
+      publish(scheduler, jobs, journal);
+      log.info("Journal: {} records, {} syncs", journal.getRecords(), journal.getSyncs());
+    }
+  }
+
+  /** Skip the units the journal has as deployed, and the checks already done */
+  private static List<Job> resume(List<Job> jobs, Journal journal) {
+    var pending = new ArrayList<Job>();
+    for (var job : jobs) {
+      var state = journal.get(job.unit.maven.toString());
+      if (state == Journal.State.DEPLOYED) {
+        log.info("Already deployed {}", job.unit.maven);
+        continue;
+      }
+      job.verified = state != null && state.compareTo(Journal.State.VERIFIED) >= 0;
+      pending.add(job);
+    }
+    return pending;
+  }
+
+  /** A unit on its way through the publish pipeline */
+  private static final class Job {
+
+    private final ResolvedUnit unit;
+
+    private Path jar;
+    private Path source;
+    private Path pom;
+    private Path javadoc;
+
+    private String content;
+    private Ledger.Entry entry;
+
+    private boolean verified;
+
+    // The files whose digest was checked when they were fetched
+    private final Set<Path> checked = new HashSet<>();
+
+    private Maven.Deployment deployment;
+
+    private Job(ResolvedUnit unit) {
+      this.unit = unit;
+    }
+  }
+
+  /** The units whose inputs changed since they were last deployed, each one is reported */
+  private List<Job> plan(List<Job> jobs, String group) {
+    var key = maven.getSigningKey();
+    var repository = maven.getRepository();
+    var changed = new ArrayList<Job>();
+    var added = 0;
+    for (var job : jobs) {
+      var unit = job.unit;
+      job.content = pom(unit, group);
+      job.entry =
+          new Ledger.Entry(
+              hash(unit.artifact),
+              hash(unit.sourceArtifact),
+              Ledger.hash(job.content.getBytes(StandardCharsets.UTF_8)),
+              key);
+
+      var coordinates = unit.maven.toString();
+      var previous = ledger.get(repository, coordinates);
+      if (previous == null) {
+        log.info("New {}", coordinates);
+        changed.add(job);
+        added++;
+        continue;
+      }
+      var changes = job.entry.changes(previous);
+      if (changes.isEmpty()) {
+        log.debug("Unchanged {}", coordinates);
+      } else {
+        log.info("Changed {}: {}", coordinates, changes);
+        changed.add(job);
+      }
+    }
+    log.info(
+        "Units: {} new, {} changed, {} unchanged",
+        added,
+        changed.size() - added,
+        jobs.size() - changed.size());
+    return changed;
+  }
+
+  /** The p2 checksum of an artifact, its id and version are immutable too otherwise */
+  private static String hash(Artifact artifact) {
+    if (artifact == null) return null;
+    var checksum = artifact.getChecksum();
+    if (checksum == null) return artifact.id + "_" + artifact.version;
+    return checksum.algorithm() + ":" + checksum.value();
+  }
+
+  private void publish(IoScheduler scheduler, List<Job> jobs, Journal journal) throws IOException {
+    var busiest = estimate(scheduler, jobs);
+    var bytes = new AtomicLong();
+
+    // The download time of each download worker, without the time it waits for room downstream
+    var loads = new ConcurrentHashMap<Thread, Long>();
+
+    // Downloads and deploys overlap, each unit moves on as soon as its files are there
+    var cores = Runtime.getRuntime().availableProcessors();
+    var pipeline =
+        new Pipeline<Job>(Integer.getInteger(Config.PUBLISH_QUEUE, 16))
+            .stage(
+                "download",
+                scheduler.getMaxConnections(),
+                x -> {
+                  var started = System.nanoTime();
+                  download(x, bytes);
+                  loads.merge(Thread.currentThread(), System.nanoTime() - started, Long::sum);
+                  record(journal, x, Journal.State.DOWNLOADED);
+                })
+            .stage(
+                "verify",
+                cores,
+                x -> {
+                  verify(x);
+                  record(journal, x, Journal.State.VERIFIED);
+                })
+            .stage("pom", cores, this::pom)
+            .stage(
+                "sign",
+                cores,
+                x -> {
+                  sign(x);
+                  record(journal, x, Journal.State.SIGNED);
+                })
+            .stage("deploy", scheduler.getConnections(), x -> deploy(x, journal));
+
+    var before = scheduler.metrics();
+    var start = System.nanoTime();
+    List<Pipeline.Failure<Job>> failures;
+    try {
+      failures = pipeline.run(jobs);
+    } finally {
+      jobs.forEach(Publisher::cleanup);
+
+      var metrics = scheduler.metrics();
+      log.info("Downloads: {}", metrics);
+      log.info("Artifact store: {} stored, {} downloaded", store.getHits(), store.getMisses());
+      for (var stage : pipeline.metrics()) {
+        log.info("Stage {}", stage);
+      }
+
+      // Estimate at the transfer rate of a single connection measured in this run, only the
+      // artifact downloads hold connections while the pipeline runs
+      var total = bytes.get();
+      var busy = metrics.busyMillis() - before.busyMillis();
+      var estimate = total == 0 || busy == 0 ? 0 : busiest * busy / total;
+      var makespan = loads.values().stream().mapToLong(x -> x).max().orElse(0);
+      log.info(
+          "Downloaded {} MB in {} ms on the busiest worker, estimated {} ms",
+          total >> 20,
+          makespan / 1_000_000,
+          estimate);
+      log.info("Published {} units in {} ms", jobs.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // The other units are published, report the failed ones together
+    if (!failures.isEmpty()) {
+      var e =
+          new IOException(
+              String.format("%d units failed, run again with --resume", failures.size()));
+      for (var failure : failures) {
+        log.error(
+            "Failed to publish {} in {}: {}",
+            failure.item().unit.id,
+            failure.stage(),
+            failure.error().toString());
+        e.addSuppressed(failure.error());
+      }
+      throw e;
+    }
+  }
+
+  private static void record(Journal journal, Job job, Journal.State state) throws IOException {
+    journal.record(job.unit.maven.toString(), state);
+  }
+
+  private static long size(Artifact artifact) {
+    return artifact == null ? 0 : artifact.getSize();
+  }
+
+  private static long size(ResolvedUnit unit) {
+    return size(unit.artifact) + size(unit.sourceArtifact);
+  }
+
+  /**
+   * The size of the busiest connection, the connections to a host are the workers
+   *
+   * <p>The artifacts already there are left out, they don't use a connection.
+   */
+  private long estimate(IoScheduler scheduler, List<Job> jobs) {
+    var hosts = new HashMap<String, List<Long>>();
+    for (var job : jobs) {
+      var artifacts = Stream.of(job.unit.artifact, job.unit.sourceArtifact);
+      for (var artifact : artifacts.filter(Objects::nonNull).toList()) {
+        if (artifact.file == null || store.contains(artifact, base.resolve(artifact.file))) {
+          continue;
+        }
+        var host = URI.create(artifact.url).getHost();
+        hosts.computeIfAbsent(host, x -> new ArrayList<>()).add(size(artifact));
+      }
+    }
+    var busiest = 0L;
+    for (var sizes : hosts.values()) {
+      busiest = Math.max(busiest, IoScheduler.makespan(sizes, scheduler.getConnections()));
+    }
+    return busiest;
+  }
+
+  private void download(Job job, AtomicLong bytes) {
+    job.jar = download(job, job.unit.artifact, bytes);
+    job.source = download(job, job.unit.sourceArtifact, bytes);
+  }
+
+  private Path download(Job job, Artifact artifact, AtomicLong bytes) {
+    if (artifact == null || artifact.file == null) return null;
+    var file = base.resolve(artifact.file);
+    if (store.fetch(artifact, file)) {
+      bytes.addAndGet(size(artifact));
+    }
+    if (artifact.getChecksum() != null) {
+      job.checked.add(file);
+    }
+    return file;
+  }
+
+  private void verify(Job job) throws IOException {
+    // Verified before the previous run stopped
+    if (job.verified) return;
+    verify(job.unit.artifact, job.jar, job.checked.contains(job.jar));
+    verify(job.unit.sourceArtifact, job.source, job.checked.contains(job.source));
+  }
 
+  /**
+   * Check the size of a file before it's signed, and its p2 checksum unless that was checked when
+   * it was fetched
+   */
+  private static void verify(Artifact artifact, Path file, boolean checked) throws IOException {
+    if (file == null) return;
+    var expected = size(artifact);
+    if (expected > 0 && Files.size(file) != expected) {
+      throw new IOException(
+          String.format("Size of %s is %d, expected %d", file, Files.size(file), expected));
+    }
+    var checksum = artifact.getChecksum();
+    if (checksum != null && !checked && !Client.matches(file, checksum)) {
+      throw new IOException(String.format("%s mismatch of %s", checksum.algorithm(), file));
+    }
+  }
+
+  private String pom(ResolvedUnit unit, String group) {
     // Publish feature group as pom only
     var isPom = unit.id.endsWith(".feature.group");
 
@@ -104,31 +398,43 @@ public class Publisher {
             .findFirst()
             .orElse(null);
 
-    var jarFile = download(unit.artifact);
-    var sourceFile = download(unit.sourceArtifact);
+    return new Pom(unit).group(group).pom(isPom).info(info).build();
+  }
 
+  private void pom(Job job) throws IOException {
+    var unit = job.unit;
     var pomName = unit.maven.artifactId + "-" + unit.maven.version + ".pom";
     var pomFile = base.resolve(pomName);
-    var pom = new Pom(unit).group(group).pom(isPom).info(info).build();
 
-    var javadocFile = javadoc(unit, pomFile);
+    job.javadoc = javadoc(unit, pomFile);
+    job.pom = pomFile;
+    Files.writeString(pomFile, job.content);
+  }
+
+  private void sign(Job job) throws IOException {
+    job.deployment = maven.prepare(job.pom, job.jar, job.source, job.javadoc);
+  }
 
-    Files.writeString(pomFile, pom);
+  private void deploy(Job job, Journal journal) throws IOException {
+    log.info("Publishing {}", job.unit.id);
     try {
       // Publish to maven repository
-      maven.publish(pomFile, jarFile, sourceFile, javadocFile);
+      maven.deploy(job.deployment);
+      record(journal, job, Journal.State.DEPLOYED);
+      ledger.put(maven.getRepository(), job.unit.maven.toString(), job.entry);
     } finally {
-      Files.deleteIfExists(pomFile);
-      if (javadocFile != null) Files.deleteIfExists(javadocFile);
+      cleanup(job);
     }
   }
 
-  private Path download(Artifact artifact) {
-    if (artifact == null || artifact.file == null) return null;
-    var file = base.resolve(artifact.file);
-    Client.download(artifact.url, file);
-    Client.verify(file, artifact.sha512);
-    return file;
+  private static void cleanup(Job job) {
+    try {
+      if (job.deployment != null) job.deployment.close();
+      if (job.pom != null) Files.deleteIfExists(job.pom);
+      if (job.javadoc != null) Files.deleteIfExists(job.javadoc);
+    } catch (IOException e) {
+      log.warn("Unable to clean up {}: {}", job.unit.id, e.toString());
+    }
   }
 
   private Path javadoc(ResolvedUnit unit, Path pomFile) throws IOException {
@@ -151,28 +457,98 @@ public class Publisher {
     return jarFile;
   }
 
-  private Map<String, ResolvedUnit> findPublishCandidates() {
-    var units = new LinkedHashMap<String, ResolvedUnit>();
+  /** A unit of the dependency graph, expanded once */
+  private static final class Node {
+
+    private final InstallableUnit unit;
+
+    // Null if excluded
+    private ResolvedUnit resolved;
+
+    // The dependencies, in requirement order
+    private final List<Edge> edges = new ArrayList<>();
+
+    private Node(InstallableUnit unit) {
+      this.unit = unit;
+    }
+  }
+
+  private static record Edge(RequiredCapability requirement, InstallableUnit required) {}
+
+  /** Resolve the units to publish and their dependencies, in depth first order */
+  Map<String, ResolvedUnit> findPublishCandidates() {
+    index = new SiteIndex(sites);
+    var roots = new ArrayList<InstallableUnit>();
     for (var plugin : config.getPublish()) {
-      var unit =
-          sites.stream()
-              .map(site -> site.findUnit(plugin.id))
-              .filter(Objects::nonNull)
-              .findFirst()
-              .orElseThrow(
-                  () -> new IllegalArgumentException("No such plugin found: " + plugin.id));
-      resolve(unit, units);
+      var unit = index.findUnit(plugin.id);
+      if (unit == null) {
+        throw new IllegalArgumentException("No such plugin found: " + plugin.id);
+      }
+      roots.add(unit);
     }
-    return units;
+    return link(roots, expand(roots));
   }
 
-  private ResolvedUnit resolve(InstallableUnit unit, Map<String, ResolvedUnit> units) {
-    var id = unit.id;
+  /**
+   * Expand the dependency graph concurrently
+   *
+   * <p>Each id is expanded once on its own virtual thread, so the blocking maven central checks of
+   * the whole frontier overlap, and the carrier threads steal the ready work from each other. The
+   * first version of an id reached by any path is expanded, {@link #link} expands the version the
+   * depth first walk reaches instead if it's another one. The expansion stops at the first failure.
+   */
+  private Map<InstallableUnit, Node> expand(List<InstallableUnit> roots) {
+    var nodes = new ConcurrentHashMap<InstallableUnit, Node>();
+    var ids = ConcurrentHashMap.<String>newKeySet();
+    var failure = new AtomicReference<Throwable>();
+
+    // The roots and the units not expanded yet
+    var pending = new AtomicInteger(1);
+    var done = new CountDownLatch(1);
+
+    try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      var visit =
+          new Consumer<InstallableUnit>() {
+            @Override
+            public void accept(InstallableUnit unit) {
+              if (failure.get() != null || !ids.add(unit.id)) return;
+              var node = new Node(unit);
+              nodes.put(unit, node);
+              pending.incrementAndGet();
+              executor.execute(
+                  () -> {
+                    try {
+                      if (failure.get() != null) return;
+                      expand(node);
+                      node.edges.forEach(x -> accept(x.required));
+                    } catch (Throwable e) {
+                      failure.compareAndSet(null, e);
+                    } finally {
+                      if (pending.decrementAndGet() == 0) done.countDown();
+                    }
+                  });
+            }
+          };
+      roots.forEach(visit);
+      if (pending.decrementAndGet() == 0) done.countDown();
+      done.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
 
-    // If already resolved, return
-    if (units.containsKey(id)) {
-      return units.get(id);
+    switch (failure.get()) {
+      case null -> {}
+      case RuntimeException e -> throw e;
+      case Error e -> throw e;
+      case Throwable e -> throw new RuntimeException(e);
     }
+    return nodes;
+  }
+
+  private void expand(Node node) {
+    var unit = node.unit;
+    var id = unit.id;
 
     log.info("Resolving {}", id);
 
@@ -185,31 +561,31 @@ public class Publisher {
     resolved.description = unit.description;
 
     // Find the maven coordinates
-    resolved.maven = findMavenCoordinates(unit);
+    var artifact = index.findArtifact(unit);
+    resolved.maven = findMavenCoordinates(unit, artifact);
 
     // Excluded?
     if (isExcluded(resolved)) {
       log.info("Excluding {}", id);
-      return null;
+      return;
     }
 
-    // Add the unit to the map earlier to avoid infinite recursion
-    units.put(id, resolved);
+    node.resolved = resolved;
 
     // Check if we can resolve the maven coordinates
     if (resolve(resolved)) {
       // Artifact found in maven central
       resolved.external = true;
-      return resolved;
+      return;
     }
 
     // Find artifacts
-    resolved.artifact = findArtifact(unit);
-    resolved.sourceArtifact = findArtifact(unit, "source");
+    resolved.artifact = artifact;
+    resolved.sourceArtifact = index.findArtifact(unit, "source");
 
-    // Resolve dependencies
+    // Find dependencies
     for (var requirement : unit.requires) {
-      var required = findUnit(requirement);
+      var required = index.findUnit(requirement);
       if (required == null && requirement.optional) {
         // Optional dependency, skip
         continue;
@@ -224,33 +600,79 @@ public class Publisher {
         continue;
       }
 
-      var dependency = resolve(required, units);
-      if (dependency == null) {
-        log.warn("No dependency found for {} in {}", requirement, id);
-        continue;
-      }
+      node.edges.add(new Edge(requirement, required));
+    }
+  }
 
-      // Ignore self dependency
-      if (dependency.maven != null && dependency.maven.equals(resolved.maven)) {
-        continue;
-      }
+  /**
+   * Link the expanded units in depth first order from the roots
+   *
+   * <p>The first unit reached with an id wins, so the result is the same whatever order the units
+   * were expanded in. The walk uses its own stack, however deep the graph.
+   */
+  private Map<String, ResolvedUnit> link(
+      List<InstallableUnit> roots, Map<InstallableUnit, Node> nodes) {
+    var units = new LinkedHashMap<String, ResolvedUnit>();
+    var stack = new ArrayDeque<Node>();
+    var next = new ArrayDeque<Integer>();
+
+    for (var root : roots) {
+      visit(root, nodes, units, stack, next);
+      while (!stack.isEmpty()) {
+        var node = stack.peek();
+        var i = next.pop();
+        if (i == node.edges.size()) {
+          stack.pop();
+          continue;
+        }
+        next.push(i + 1);
+
+        var edge = node.edges.get(i);
+        var resolved = node.resolved;
+        var dependency = visit(edge.required, nodes, units, stack, next);
+        if (dependency == null) {
+          log.warn("No dependency found for {} in {}", edge.requirement, resolved.id);
+          continue;
+        }
 
-      if (requirement.optional) {
-        resolved.optionalDependencies.add(dependency);
-      } else {
-        resolved.dependencies.add(dependency);
+        // Ignore self dependency
+        if (dependency.maven != null && dependency.maven.equals(resolved.maven)) {
+          continue;
+        }
+
+        if (edge.requirement.optional) {
+          resolved.optionalDependencies.add(dependency);
+        } else {
+          resolved.dependencies.add(dependency);
+        }
       }
     }
-
-    return resolved;
+    return units;
   }
 
-  private InstallableUnit findUnit(RequiredCapability requirement) {
-    for (var site : sites) {
-      var unit = site.findUnit(requirement);
-      if (unit != null) return unit;
+  private ResolvedUnit visit(
+      InstallableUnit unit,
+      Map<InstallableUnit, Node> nodes,
+      Map<String, ResolvedUnit> units,
+      Deque<Node> stack,
+      Deque<Integer> next) {
+    // If already resolved or excluded, return
+    if (units.containsKey(unit.id)) {
+      return units.get(unit.id);
+    }
+    var node = nodes.get(unit);
+    if (node == null) {
+      // Another version of the id was expanded first
+      node = new Node(unit);
+      expand(node);
+      nodes.put(unit, node);
+    }
+    units.put(unit.id, node.resolved);
+    if (!node.edges.isEmpty()) {
+      stack.push(node);
+      next.push(0);
     }
-    return null;
+    return node.resolved;
   }
 
   private boolean resolve(ResolvedUnit unit) {
@@ -260,46 +682,21 @@ public class Publisher {
     return !canResolve || maven.resolve(unit.maven.toString());
   }
 
-  private boolean isMatched(ResolvedUnit unit, PublishConfig config) {
-    var id = unit.id;
-    var maven = unit.maven;
-    if (config.id != null && config.id.equals(id)) return true;
-    if (config.pattern != null) {
-      var pattern = Pattern.compile(config.pattern);
-      if (maven != null) {
-        // Check if the pattern matches the maven coordinates
-        var matcher = pattern.matcher(maven.toString());
-        if (matcher.matches()) return true;
-      } else {
-        // Check if the pattern matches the id
-        var matcher = pattern.matcher(id);
-        if (matcher.matches()) return true;
-      }
-    }
-    return false;
+  // Patterns match the maven coordinates if any, the id otherwise
+  private static String matchText(ResolvedUnit unit) {
+    return unit.maven == null ? unit.id : unit.maven.toString();
   }
 
   private boolean isExcluded(ResolvedUnit unit) {
-    for (var exclude : config.getExclude()) {
-      if (isMatched(unit, exclude)) {
-        return true;
-      }
-    }
-    return false;
+    return config.getExcludeRules().matches(unit.id, matchText(unit));
   }
 
   private boolean isCandidate(ResolvedUnit unit) {
-    for (var candidate : config.getCandidates()) {
-      if (isMatched(unit, candidate)) {
-        return true;
-      }
-    }
-    return false;
+    return config.getCandidateRules().matches(unit.id, matchText(unit));
   }
 
-  private MavenCoordinates findMavenCoordinates(InstallableUnit unit) {
+  private MavenCoordinates findMavenCoordinates(InstallableUnit unit, Artifact artifact) {
     var maven = new MavenCoordinates();
-    var artifact = findArtifact(unit);
 
     var given = artifact == null ? unit.maven : artifact.maven;
     var text = given == null ? unit.id : given.toString();
@@ -315,35 +712,20 @@ public class Publisher {
       maven.version = unit.version;
     }
 
-    for (var mapping : config.getMappings()) {
-      var pattern = Pattern.compile(mapping.pattern);
-      var matcher = pattern.matcher(text);
-      if (matcher.matches()) {
-        if (mapping.groupId != null) {
-          maven.groupId = matcher.replaceAll(mapping.groupId);
-        }
-        if (mapping.artifactId != null) {
-          maven.artifactId = matcher.replaceAll(mapping.artifactId);
-        }
-        if (mapping.version != null) {
-          maven.version = matcher.replaceAll(mapping.version);
-        }
+    for (var match : config.getMappingRules().find(text)) {
+      var mapping = match.rule();
+      var matcher = match.matcher();
+      if (mapping.groupId != null) {
+        maven.groupId = matcher.replaceAll(mapping.groupId);
+      }
+      if (mapping.artifactId != null) {
+        maven.artifactId = matcher.replaceAll(mapping.artifactId);
+      }
+      if (mapping.version != null) {
+        maven.version = matcher.replaceAll(mapping.version);
       }
     }
 
     return maven.groupId == null ? null : maven;
   }
-
-  private Artifact findArtifact(InstallableUnit unit) {
-    return findArtifact(unit, null);
-  }
-
-  private Artifact findArtifact(InstallableUnit unit, String classifier) {
-    var id = classifier == null ? unit.id : unit.id + "." + classifier;
-    return sites.stream()
-        .map(site -> site.findArtifact(id))
-        .filter(Objects::nonNull)
-        .findFirst()
-        .orElse(null);
-  }
 }
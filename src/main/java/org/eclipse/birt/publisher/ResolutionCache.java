@@ -0,0 +1,180 @@
+package org.eclipse.birt.publisher;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent cache of the existence answers of a maven repository.
+ *
+ * <p>Released coordinates are immutable, so a found artifact is cached for ever. A missing one may
+ * be published later, it's asked again once its answer is older than the negative ttl. The answers
+ * are appended to the cache file as they come, one {@code <coordinates> <+|-> <millis>} line each,
+ * and the file is compacted when it's loaded.
+ */
+public class ResolutionCache {
+
+  private static final Logger log = LoggerFactory.getLogger(ResolutionCache.class);
+
+  /** Ask the repository whether an artifact exists */
+  @FunctionalInterface
+  public static interface Lookup {
+    boolean exists(String coordinates) throws IOException;
+  }
+
+  private static record Answer(boolean found, long millis) {}
+
+  private final Path file;
+
+  private final Duration negativeTtl;
+
+  private final Clock clock;
+
+  private final Map<String, Answer> answers = new ConcurrentHashMap<>();
+
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+
+  /**
+   * Load the cache
+   *
+   * @param file the cache file, created when the first answer is stored
+   * @param negativeTtl how long a missing artifact is cached
+   */
+  public ResolutionCache(Path file, Duration negativeTtl) {
+    this(file, negativeTtl, Clock.systemUTC());
+  }
+
+  ResolutionCache(Path file, Duration negativeTtl, Clock clock) {
+    this.file = file;
+    this.negativeTtl = negativeTtl;
+    this.clock = clock;
+    try {
+      load();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void load() throws IOException {
+    if (Files.notExists(file)) {
+      return;
+    }
+    var lines = 0;
+    for (var line : Files.readAllLines(file)) {
+      lines++;
+      var parts = line.split(" ");
+      if (parts.length != 3) continue;
+      try {
+        var answer = new Answer(parts[1].equals("+"), Long.parseLong(parts[2]));
+        if (!expired(answer)) {
+          answers.put(parts[0], answer);
+        } else {
+          answers.remove(parts[0]);
+        }
+      } catch (NumberFormatException e) {
+        // Torn line of an interrupted run
+      }
+    }
+    log.debug("Loaded {} answers from {}", answers.size(), file);
+
+    // Drop the expired and superseded answers
+    if (lines > answers.size()) {
+      var kept = new ArrayList<String>(answers.size());
+      answers.forEach((key, answer) -> kept.add(line(key, answer)));
+      var temp = file.resolveSibling(file.getFileName() + ".tmp");
+      Files.write(temp, kept);
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private boolean expired(Answer answer) {
+    return !answer.found && clock.millis() - answer.millis >= negativeTtl.toMillis();
+  }
+
+  private static String line(String coordinates, Answer answer) {
+    return coordinates + " " + (answer.found ? "+" : "-") + " " + answer.millis;
+  }
+
+  /**
+   * Get the cached answer
+   *
+   * @param coordinates the artifact coordinates
+   * @return whether the artifact exists, null if it's not cached or the answer expired
+   */
+  public Boolean get(String coordinates) {
+    var answer = answers.get(coordinates);
+    if (answer == null || expired(answer)) {
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    return answer.found;
+  }
+
+  /**
+   * Store an answer
+   *
+   * @param coordinates the artifact coordinates
+   * @param found whether the artifact exists
+   */
+  public void put(String coordinates, boolean found) {
+    var answer = new Answer(found, clock.millis());
+    answers.put(coordinates, answer);
+    synchronized (this) {
+      try {
+        Files.createDirectories(file.getParent());
+        Files.writeString(
+            file,
+            line(coordinates, answer) + "\n",
+            StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND);
+      } catch (IOException e) {
+        log.warn("Unable to store the answer for {}: {}", coordinates, e.toString());
+      }
+    }
+  }
+
+  /**
+   * Get the cached answer, or ask the repository and store its answer
+   *
+   * @param coordinates the artifact coordinates
+   * @param lookup the repository lookup
+   * @return whether the artifact exists
+   * @throws UncheckedIOException if the repository can't tell, nothing is stored then
+   */
+  public boolean resolve(String coordinates, Lookup lookup) {
+    var found = get(coordinates);
+    if (found != null) {
+      return found;
+    }
+    try {
+      found = lookup.exists(coordinates);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    put(coordinates, found);
+    return found;
+  }
+
+  /** The lookups answered from the cache */
+  public int getHits() {
+    return hits.get();
+  }
+
+  /** The lookups that had to ask the repository */
+  public int getMisses() {
+    return misses.get();
+  }
+}
@@ -0,0 +1,207 @@
+package org.eclipse.birt.publisher;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Compiled matching rules of the config.
+ *
+ * <p>The {@code id} rules are looked up in a hash set. The patterns are compiled once and indexed
+ * by their literal prefix, so a text is matched only against the patterns whose prefix it starts
+ * with, plus the few patterns without one.
+ *
+ * @param <T> the rule config
+ */
+public class Rules<T> {
+
+  /** A matching pattern rule, with its matcher to expand the replacements */
+  public static record Match<T>(T rule, Matcher matcher) {}
+
+  private record Compiled<T>(int order, T rule, Pattern pattern) {}
+
+  private static final String QUANTIFIERS = "*+?{";
+
+  private final Set<String> ids = new HashSet<>();
+
+  // Pattern rules by literal prefix, and the lengths of the prefixes to try
+  private final Map<String, List<Compiled<T>>> prefixed = new HashMap<>();
+  private final TreeSet<Integer> lengths = new TreeSet<>();
+
+  private final List<Compiled<T>> unprefixed = new ArrayList<>();
+
+  private Rules() {}
+
+  /**
+   * Compile the rules
+   *
+   * @param name the config section, for the errors
+   * @param rules the rules, in config order
+   * @param id the literal id of a rule, null if none
+   * @param pattern the pattern of a rule, null if none
+   * @throws IllegalArgumentException if a pattern is invalid, or a rule has neither
+   */
+  public static <T> Rules<T> compile(
+      String name, List<T> rules, Function<T, String> id, Function<T, String> pattern) {
+    var compiled = new Rules<T>();
+    for (var i = 0; i < rules.size(); i++) {
+      var rule = rules.get(i);
+      var ruleId = id.apply(rule);
+      var rulePattern = pattern.apply(rule);
+      if (ruleId == null && rulePattern == null) {
+        throw new IllegalArgumentException(String.format("Rule %d of %s has no pattern", i, name));
+      }
+      if (ruleId != null) {
+        compiled.ids.add(ruleId);
+      }
+      if (rulePattern != null) {
+        try {
+          compiled.add(new Compiled<>(i, rule, Pattern.compile(rulePattern)));
+        } catch (PatternSyntaxException e) {
+          throw new IllegalArgumentException(
+              String.format("Invalid pattern of rule %d of %s: %s", i, name, e.getMessage()), e);
+        }
+      }
+    }
+    return compiled;
+  }
+
+  private void add(Compiled<T> compiled) {
+    var prefix = prefix(compiled.pattern.pattern());
+    if (prefix.isEmpty()) {
+      unprefixed.add(compiled);
+    } else {
+      prefixed.computeIfAbsent(prefix, x -> new ArrayList<>()).add(compiled);
+      lengths.add(prefix.length());
+    }
+  }
+
+  /**
+   * The literal text every match of a pattern starts with
+   *
+   * <p>Groups are entered unless they hold an alternative or are optional. Anything else that's not
+   * a plain or escaped character ends the prefix.
+   */
+  static String prefix(String pattern) {
+    var prefix = new StringBuilder();
+    var groups = new ArrayList<Integer>(); // prefix length where each open group starts
+    var i = 0;
+    while (i < pattern.length()) {
+      var c = pattern.charAt(i);
+      var start = prefix.length();
+      if (c == '(') {
+        if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '?') break;
+        groups.add(start);
+        i++;
+        continue;
+      }
+      if (c == ')') {
+        if (groups.isEmpty()) break;
+        start = groups.removeLast();
+        i++;
+      } else if (c == '\\') {
+        if (i + 1 >= pattern.length()) break;
+        var escaped = pattern.charAt(i + 1);
+        // Letters and digits are classes, back references or quotes
+        if (Character.isLetterOrDigit(escaped)) break;
+        prefix.append(escaped);
+        i += 2;
+      } else if (".[]{}*+?^$|".indexOf(c) >= 0) {
+        break;
+      } else {
+        prefix.append(c);
+        i++;
+      }
+
+      // A quantifier makes the last character or group optional or repeated
+      if (i < pattern.length() && QUANTIFIERS.indexOf(pattern.charAt(i)) >= 0) {
+        prefix.setLength(start);
+        break;
+      }
+    }
+
+    // The rest may still make the prefix optional, with an alternative or an optional group
+    var depth = 0;
+    for (; i < pattern.length(); i++) {
+      var c = pattern.charAt(i);
+      if (c == '\\') {
+        i++;
+      } else if (c == '[') {
+        // Skip the class, it may hold any character
+        for (i++; i < pattern.length() && pattern.charAt(i) != ']'; i++) {
+          if (pattern.charAt(i) == '\\') i++;
+        }
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')' && depth > 0) {
+        depth--;
+      } else if (c == ')' && !groups.isEmpty()) {
+        var start = groups.removeLast();
+        if (i + 1 < pattern.length() && QUANTIFIERS.indexOf(pattern.charAt(i + 1)) >= 0) {
+          prefix.setLength(Math.min(prefix.length(), start));
+        }
+      } else if (c == '|' && depth == 0) {
+        var start = groups.isEmpty() ? 0 : groups.getLast();
+        prefix.setLength(Math.min(prefix.length(), start));
+      }
+    }
+    return prefix.toString();
+  }
+
+  private List<Compiled<T>> candidates(String text) {
+    var candidates = new ArrayList<Compiled<T>>(unprefixed);
+    for (var length : lengths) {
+      if (length > text.length()) break;
+      var rules = prefixed.get(text.substring(0, length));
+      if (rules != null) {
+        candidates.addAll(rules);
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * Whether a rule matches
+   *
+   * @param id the id to look up
+   * @param text the text to match the patterns against
+   */
+  public boolean matches(String id, String text) {
+    if (ids.contains(id)) {
+      return true;
+    }
+    for (var compiled : candidates(text)) {
+      if (compiled.pattern.matcher(text).matches()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Find the pattern rules matching a text
+   *
+   * @param text the text
+   * @return the matches, in config order
+   */
+  public List<Match<T>> find(String text) {
+    var candidates = candidates(text);
+    candidates.sort((x, y) -> Integer.compare(x.order, y.order));
+    var matches = new ArrayList<Match<T>>();
+    for (var compiled : candidates) {
+      var matcher = compiled.pattern.matcher(text);
+      if (matcher.matches()) {
+        matches.add(new Match<>(compiled.rule, matcher));
+      }
+    }
+    return matches;
+  }
+}
@@ -1,23 +1,28 @@
 package org.eclipse.birt.publisher;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
-import javax.xml.parsers.DocumentBuilderFactory;
+import java.util.Properties;
+import java.util.zip.ZipInputStream;
 import org.eclipse.birt.publisher.metadata.Artifact;
 import org.eclipse.birt.publisher.metadata.InstallableUnit;
-import org.eclipse.birt.publisher.metadata.MavenCoordinates;
-import org.eclipse.birt.publisher.metadata.ProvidedCapability;
 import org.eclipse.birt.publisher.metadata.RequiredCapability;
+import org.eclipse.birt.publisher.metadata.Version;
+import org.eclipse.birt.publisher.metadata.VersionRange;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
+import org.tukaani.xz.XZInputStream;
 
 public class Site {
 
@@ -26,12 +31,77 @@ public class Site {
   private List<InstallableUnit> units;
   private List<Artifact> artifacts;
 
+  // Lookup indexes, built once the metadata is loaded
+  private Map<String, InstallableUnit> unitIndex;
+  private Map<Capability, Providers> capabilityIndex;
+  private Map<String, Artifact> artifactIndex;
+
+  private static record Capability(String namespace, String name) {}
+
+  private static record Provider(Version version, InstallableUnit unit) {}
+
+  /** The providers of a capability sorted by version, one unit per version. */
+  private static final class Providers {
+
+    private final Version[] versions;
+    private final InstallableUnit[] units;
+
+    Providers(List<Provider> providers) {
+      // Stable sort, so the first unit in metadata order wins for the same version
+      var sorted = new ArrayList<>(providers);
+      sorted.sort(Comparator.comparing(Provider::version));
+
+      var versions = new ArrayList<Version>(sorted.size());
+      var units = new ArrayList<InstallableUnit>(sorted.size());
+      for (var provider : sorted) {
+        if (versions.isEmpty() || !versions.getLast().equals(provider.version())) {
+          versions.add(provider.version());
+          units.add(provider.unit());
+        }
+      }
+
+      this.versions = versions.toArray(Version[]::new);
+      this.units = units.toArray(InstallableUnit[]::new);
+    }
+
+    /** Find the provider with the highest version in the range */
+    InstallableUnit find(VersionRange range) {
+      // Binary search for the highest version below the upper bound
+      var low = 0;
+      var high = versions.length - 1;
+      var found = -1;
+      while (low <= high) {
+        var mid = (low + high) >>> 1;
+        if (range.isBelowMaximum(versions[mid])) {
+          found = mid;
+          low = mid + 1;
+        } else {
+          high = mid - 1;
+        }
+      }
+      return found >= 0 && range.isAboveMinimum(versions[found]) ? units[found] : null;
+    }
+  }
+
+  private static final String METADATA_ORDER = "metadata.repository.factory.order";
+  private static final String ARTIFACT_ORDER = "artifact.repository.factory.order";
+
   private final String name;
   private final String url;
+  private final Mirrors mirrors;
+
+  private Properties index;
+
+  private List<Site> children = List.of();
 
   public Site(String name, String url) {
+    this(name, new Mirrors(List.of(url)));
+  }
+
+  public Site(String name, Mirrors mirrors) {
     this.name = name;
-    this.url = url;
+    this.url = mirrors.getUrl();
+    this.mirrors = mirrors;
   }
 
   public String getName() {
@@ -50,31 +120,86 @@ public class Site {
     return artifacts;
   }
 
-  public InstallableUnit findUnit(String id) {
-    for (var unit : units) {
-      if (unit.id.equals(id)) {
-        return unit;
-      }
+  /** The child sites of a composite site, empty for a simple site */
+  public List<Site> getChildren() {
+    return children;
+  }
+
+  public Mirrors getMirrors() {
+    return mirrors;
+  }
+
+  /** Measure the mirrors of the site and of its children */
+  public void probe() {
+    if (children.isEmpty()) {
+      mirrors.probe("p2.index");
     }
-    return null;
+    for (var child : children) {
+      child.probe();
+    }
+  }
+
+  /**
+   * Download an artifact of the site from the best mirror
+   *
+   * @param artifact the artifact
+   * @param file the local file
+   */
+  public void download(Artifact artifact, Path file) {
+    var path = artifact.url.substring(url.length() + 1);
+    mirrors.download(path, file, artifact.getSize(), artifact.getChecksum());
+  }
+
+  public InstallableUnit findUnit(String id) {
+    return unitIndex.get(id);
   }
 
   public InstallableUnit findUnit(RequiredCapability requirement) {
+    var providers = capabilityIndex.get(new Capability(requirement.namespace, requirement.name));
+    return providers == null ? null : providers.find(requirement.range);
+  }
+
+  public Artifact findArtifact(String id) {
+    return artifactIndex.get(id);
+  }
+
+  /** Set the site, remote url and local file of an artifact */
+  void locate(Artifact artifact) {
+    var file = String.format("%s_%s.jar", artifact.id, artifact.version);
+    var folder = "org.eclipse.update.feature".equals(artifact.classifier) ? "features" : "plugins";
+
+    artifact.site = this;
+    artifact.url = String.format("%s/%s/%s", url, folder, file);
+    artifact.file = String.format("%s/%s/%s", name, folder, file);
+  }
+
+  void init(List<InstallableUnit> units, List<Artifact> artifacts) {
+    var unitIndex = new HashMap<String, InstallableUnit>(units.size() * 2);
+    var capabilities = new HashMap<Capability, List<Provider>>(units.size() * 4);
+    var artifactIndex = new HashMap<String, Artifact>(artifacts.size() * 2);
+
+    // The first unit or artifact in the metadata wins, same as a linear search
     for (var unit : units) {
-      if (unit.isMatch(requirement)) {
-        return unit;
+      unitIndex.putIfAbsent(unit.id, unit);
+      for (var capability : unit.provides) {
+        capabilities
+            .computeIfAbsent(
+                new Capability(capability.namespace, capability.name), x -> new ArrayList<>(1))
+            .add(new Provider(capability.version, unit));
       }
     }
-    return null;
-  }
 
-  public Artifact findArtifact(String id) {
+    var capabilityIndex = new HashMap<Capability, Providers>(capabilities.size() * 2);
+    capabilities.forEach((key, providers) -> capabilityIndex.put(key, new Providers(providers)));
     for (var artifact : artifacts) {
-      if (artifact.id.equals(id)) {
-        return artifact;
-      }
+      artifactIndex.putIfAbsent(artifact.id, artifact);
     }
-    return null;
+
+    this.units = units;
+    this.artifacts = artifacts;
+    this.unitIndex = unitIndex;
+    this.capabilityIndex = capabilityIndex;
+    this.artifactIndex = artifactIndex;
   }
 
   public void load(Path base) throws IOException {
@@ -86,204 +211,197 @@ public class Site {
     // Make sure the directory exists
     Files.createDirectories(path);
 
-    var contentJar = path.resolve("content.jar");
-    var contentXml = path.resolve("content.xml");
+    var parser = new MetadataParser(this);
+    var contentMetadata = find(path, METADATA_ORDER, "content", "compositeContent");
+    if (contentMetadata == null) {
+      throw new IOException(String.format("No content metadata found in %s", url));
+    }
 
-    var artifactsJar = path.resolve("artifacts.jar");
-    var artifactsXml = path.resolve("artifacts.xml");
+    // Composite repository?
+    if (contentMetadata.prefix().equals("compositeContent")) {
+      loadChildren(base, path, parser, contentMetadata);
+      return;
+    }
 
-    if (Files.notExists(contentXml)) {
-      Client.download(url + "/content.jar", contentJar);
-      Client.extract(contentJar, path);
+    var artifactsMetadata = find(path, ARTIFACT_ORDER, "artifacts");
+    if (artifactsMetadata == null) {
+      throw new IOException(String.format("No artifacts metadata found in %s", url));
     }
 
-    if (Files.notExists(artifactsXml)) {
-      Client.download(url + "/artifacts.jar", artifactsJar);
-      Client.extract(artifactsJar, path);
+    // Use the snapshot of the previous run if the metadata is unchanged
+    var snapshotFile = path.resolve("metadata.snapshot");
+    // The retention mode decides which properties the snapshot holds, so it's part of the key
+    var key = Snapshot.checksum(contentMetadata.file(), artifactsMetadata.file());
+    key = key * 31 + parser.getRetention().ordinal();
+    var snapshot = Snapshot.read(snapshotFile, key, this);
+    if (snapshot != null) {
+      log.info("Using metadata snapshot of site {}", name);
+      init(snapshot.units, snapshot.artifacts);
+      return;
     }
 
-    // Parse the XML files
-    this.units = parse(contentXml, "unit", this::parseUnit);
-    this.artifacts = parse(artifactsXml, "artifact", this::parseArtifact);
-  }
+    // Parse the XML files straight from the downloaded files
+    var units = contentMetadata.read(parser::parseUnits);
+    var artifacts = artifactsMetadata.read(parser::parseArtifacts);
 
-  private Document initDocument(Path path) {
     try {
-      var factory = DocumentBuilderFactory.newInstance();
-      var builder = factory.newDocumentBuilder();
-      var document = builder.parse(path.toFile());
-      document.getDocumentElement().normalize();
-      return document;
-    } catch (Exception e) {
-      throw new RuntimeException("Failed to parse XML file", e);
+      Snapshot.write(snapshotFile, key, units, artifacts);
+    } catch (IOException e) {
+      log.warn("Unable to write metadata snapshot of site {}", name, e);
     }
-  }
 
-  private <T> List<T> parse(Path xml, String element, Function<Element, T> parser) {
-    var doc = initDocument(xml);
-    var root = doc.getDocumentElement();
-    return parse(root, element, parser);
+    init(units, artifacts);
   }
 
-  private <T> List<T> parse(Element root, String element, Function<Element, T> parser) {
-    var nodes = root.getElementsByTagName(element);
-    var items = new ArrayList<T>();
-    for (var i = 0; i < nodes.getLength(); i++) {
-      var item = parser.apply((Element) nodes.item(i));
-      if (item != null) {
-        items.add(item);
-      }
+  private void loadChildren(Path base, Path path, MetadataParser parser, Metadata composite)
+      throws IOException {
+    var locations = new LinkedHashSet<String>(composite.read(parser::parseChildren));
+    var artifacts = find(path, ARTIFACT_ORDER, "compositeArtifacts");
+    if (artifacts != null) {
+      locations.addAll(artifacts.read(parser::parseChildren));
     }
-    return items;
-  }
 
-  private InstallableUnit parseUnit(Element element) {
-    var props = parseProperties(element);
-    var unit = new InstallableUnit();
-
-    unit.id = element.getAttribute("id");
-    unit.version = element.getAttribute("version");
-    unit.name = getProperty(props, "org.eclipse.equinox.p2.name");
-    unit.description = getProperty(props, "org.eclipse.equinox.p2.description");
-    unit.maven = parseMaven(props);
-    unit.properties = props;
-    unit.requires = parseRequired(element);
-    unit.provides = parseProvided(element);
-    unit.artifacts = parse(element, "artifact", this::parseArtifact);
-    unit.site = this;
-
-    return unit;
-  }
+    var children = new ArrayList<Site>();
+    for (var location : locations) {
+      var childUrl = URI.create(url + "/").resolve(location).toString();
+      if (childUrl.endsWith("/")) {
+        childUrl = childUrl.substring(0, childUrl.length() - 1);
+      }
+      children.add(new Site(name + "/" + children.size(), mirrors.resolve(childUrl)));
+    }
 
-  private Artifact parseArtifact(Element element) {
-    var props = parseProperties(element);
-    var artifact = new Artifact();
-
-    artifact.id = element.getAttribute("id");
-    artifact.version = element.getAttribute("version");
-    artifact.maven = parseMaven(props);
-    artifact.properties = props;
-    artifact.sha1 = getProperty(props, "download.checksum.sha-1");
-    artifact.sha256 = getProperty(props, "download.checksum.sha-256");
-    artifact.sha512 = getProperty(props, "download.checksum.sha-512");
-    artifact.size = getProperty(props, "download.size");
-    artifact.site = this;
+    log.info("Loading {} child sites of {}", children.size(), name);
 
-    var file = String.format("%s_%s.jar", artifact.id, artifact.version);
-    var folder = "org.eclipse.update.feature".equals(artifact.classifier) ? "features" : "plugins";
+    // Load children concurrently, merge them in the composite order
+    IoScheduler.get().run(children, x -> x.load(base));
 
-    artifact.url = String.format("%s/%s/%s", url, folder, file);
-    artifact.file = String.format("%s/%s/%s", name, folder, file);
+    var units = new ArrayList<InstallableUnit>();
+    var merged = new ArrayList<Artifact>();
+    for (var child : children) {
+      units.addAll(child.getUnits());
+      merged.addAll(child.getArtifacts());
+    }
 
-    return artifact;
+    this.children = children;
+    init(units, merged);
   }
 
-  private List<ProvidedCapability> parseProvided(Element element) {
-    var nodes = element.getElementsByTagName("provided");
-    var provides = new ArrayList<ProvidedCapability>();
-
-    for (var i = 0; i < nodes.getLength(); i++) {
-      var elem = (Element) nodes.item(i);
-      var name = elem.getAttribute("name");
-      var namespace = elem.getAttribute("namespace");
-      var version = elem.getAttribute("version");
-      var provided = new ProvidedCapability();
-
-      provided.name = name;
-      provided.namespace = namespace;
-      provided.version = version;
-
-      provides.add(provided);
-    }
-
-    return provides;
+  @FunctionalInterface
+  private static interface MetadataReader<T> {
+    T read(InputStream stream) throws IOException;
   }
 
-  private List<RequiredCapability> parseRequired(Element element) {
-    var nodes = element.getElementsByTagName("required");
-    var requires = new ArrayList<RequiredCapability>();
+  /** The p2 metadata formats, in order of preference (smallest first) */
+  enum Format {
+    XZ(".xml.xz"),
+    JAR(".jar"),
+    XML(".xml");
 
-    for (var i = 0; i < nodes.getLength(); i++) {
-      var elem = (Element) nodes.item(i);
-      var name = elem.getAttribute("name");
-      var namespace = elem.getAttribute("namespace");
-      var range = elem.getAttribute("range");
-      var optional = "true".equals(elem.getAttribute("optional"));
-      var required = new RequiredCapability();
+    final String suffix;
 
-      required.name = name;
-      required.namespace = namespace;
-      required.range = range;
-      required.optional = optional;
+    Format(String suffix) {
+      this.suffix = suffix;
+    }
 
-      requires.add(required);
+    InputStream open(Path file, String prefix) throws IOException {
+      var stream = new BufferedInputStream(Files.newInputStream(file));
+      try {
+        return switch (this) {
+          case XZ -> new XZInputStream(stream);
+          case JAR -> openEntry(new ZipInputStream(stream), prefix + ".xml");
+          case XML -> stream;
+        };
+      } catch (IOException e) {
+        stream.close();
+        throw e;
+      }
     }
 
-    return requires;
+    private static InputStream openEntry(ZipInputStream zip, String name) throws IOException {
+      for (var entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+        if (name.equals(entry.getName())) {
+          return zip;
+        }
+      }
+      throw new IOException(String.format("No %s found", name));
+    }
   }
 
-  private MavenCoordinates parseMaven(Map<String, String> props) {
-    var mavenGroupId = getProperty(props, "maven-groupId", "maven-wrapped-groupId");
-    var mavenArtifactId = getProperty(props, "maven-artifactId", "maven-wrapped-artifactId");
-    var mavenVersion = getProperty(props, "maven-version", "maven-wrapped-version");
-    var mavenClassifier = getProperty(props, "maven-classifier", "maven-wrapped-classifier");
-    var mavenType = getProperty(props, "maven-type", "maven-wrapped-type");
-
-    if (mavenGroupId == null || mavenArtifactId == null) {
-      return null;
+  /**
+   * Find the metadata formats published by the site, smallest first
+   *
+   * @param index the p2.index properties, null if the site has none
+   * @param key the factory order key
+   * @param prefix the metadata file prefix
+   * @return the list of formats to try
+   */
+  static List<Format> formats(Properties index, String key, String prefix) {
+    var order = index == null ? null : index.getProperty(key);
+    if (order == null) {
+      return List.of(Format.JAR, Format.XML);
     }
 
-    // Remove -SNAPSHOT
-    if (mavenVersion != null && mavenVersion.endsWith("-SNAPSHOT")) {
-      mavenVersion = mavenVersion.substring(0, mavenVersion.length() - 9);
+    var formats = EnumSet.noneOf(Format.class);
+    for (var item : order.split(",")) {
+      item = item.trim();
+      if ("!".equals(item)) break;
+      if (item.equals(prefix + ".xml.xz")) formats.add(Format.XZ);
+      if (item.equals(prefix + ".xml")) formats.addAll(List.of(Format.JAR, Format.XML));
     }
+    return List.copyOf(formats);
+  }
 
-    var maven = new MavenCoordinates();
-    maven.groupId = mavenGroupId;
-    maven.artifactId = mavenArtifactId;
-    maven.version = mavenVersion;
-    maven.classifier = mavenClassifier;
-    maven.type = mavenType;
-
-    return maven;
+  private Properties loadIndex(Path path) throws IOException {
+    if (index == null) {
+      var file = path.resolve("p2.index");
+      var props = new Properties();
+      if (Client.refresh(url + "/p2.index", file)) {
+        try (var reader = Files.newBufferedReader(file)) {
+          props.load(reader);
+        }
+      }
+      index = props;
+    }
+    return index;
   }
 
-  private String getProperty(Map<String, String> props, String key, String... altKeys) {
-    var value = props.get(key);
-    if (value != null && value.isBlank()) value = null;
-    if (value == null) {
-      for (var altKey : altKeys) {
-        value = props.get(altKey);
-        if (value != null && value.isBlank()) value = null;
-        if (value != null) break;
+  private static record Metadata(Path file, Format format, String prefix) {
+
+    <T> T read(MetadataReader<T> reader) throws IOException {
+      try (var stream = format.open(file, prefix)) {
+        return reader.read(stream);
       }
     }
-    return value;
   }
 
-  private Map<String, String> parseProperties(Element element) {
-    var nodes = element.getElementsByTagName("property");
-    var props = new HashMap<String, String>();
-    for (var i = 0; i < nodes.getLength(); i++) {
-      var prop = (Element) nodes.item(i);
-      var name = prop.getAttribute("name");
-      var value = prop.getAttribute("value");
-      props.put(name, value);
+  /**
+   * Find the metadata file of the site, downloading it if needed
+   *
+   * @param path the site directory
+   * @param key the factory order key in p2.index
+   * @param prefixes the metadata file prefixes, in order of preference
+   * @return the metadata, null if the site doesn't publish any of them
+   */
+  private Metadata find(Path path, String key, String... prefixes) throws IOException {
+    // Prefer the files downloaded already, as long as they are still published
+    for (var prefix : prefixes) {
+      for (var format : Format.values()) {
+        var file = path.resolve(prefix + format.suffix);
+        if (Files.exists(file) && Client.refresh(url + "/" + prefix + format.suffix, file)) {
+          return new Metadata(file, format, prefix);
+        }
+      }
     }
 
-    // Resolve df_LT
-    for (var entry : props.entrySet()) {
-      var key = entry.getKey();
-      var value = entry.getValue();
-      if (value.startsWith("%")) {
-        var defaultKey = "df_LT." + value.substring(1);
-        var defaultValue = props.get(defaultKey);
-        if (defaultValue != null) {
-          props.put(key, defaultValue);
+    for (var prefix : prefixes) {
+      for (var format : formats(loadIndex(path), key, prefix)) {
+        var file = path.resolve(prefix + format.suffix);
+        if (Client.refresh(url + "/" + prefix + format.suffix, file)) {
+          return new Metadata(file, format, prefix);
         }
       }
     }
 
-    return props;
+    return null;
   }
 }
@@ -0,0 +1,79 @@
+package org.eclipse.birt.publisher;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.eclipse.birt.publisher.metadata.Artifact;
+import org.eclipse.birt.publisher.metadata.InstallableUnit;
+import org.eclipse.birt.publisher.metadata.RequiredCapability;
+
+/**
+ * Merged lookup index over the loaded sites.
+ *
+ * <p>The sites are searched in the configured order, so a unit or an artifact of an earlier site
+ * always wins, the same as searching the sites one by one. Requirement lookups are memoized, each
+ * one is resolved only once however many units share it. The lookups are safe to call from
+ * concurrent resolvers.
+ */
+public class SiteIndex {
+
+  private final List<Site> sites;
+
+  private final Map<String, InstallableUnit> units = new HashMap<>();
+  private final Map<String, Artifact> artifacts = new HashMap<>();
+
+  // Empty when nothing matches, the concurrent map can't hold nulls
+  private final Map<RequiredCapability, Optional<InstallableUnit>> requirements =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Create the index of the loaded sites
+   *
+   * @param sites the sites in order of precedence
+   */
+  public SiteIndex(List<Site> sites) {
+    this.sites = sites;
+    for (var site : sites) {
+      for (var unit : site.getUnits()) {
+        units.putIfAbsent(unit.id, unit);
+      }
+      for (var artifact : site.getArtifacts()) {
+        artifacts.putIfAbsent(artifact.id, artifact);
+      }
+    }
+  }
+
+  public InstallableUnit findUnit(String id) {
+    return units.get(id);
+  }
+
+  /** Find the unit of the first site that satisfies the requirement */
+  public InstallableUnit findUnit(RequiredCapability requirement) {
+    return requirements.computeIfAbsent(requirement, this::search).orElse(null);
+  }
+
+  private Optional<InstallableUnit> search(RequiredCapability requirement) {
+    for (var site : sites) {
+      var found = site.findUnit(requirement);
+      if (found != null) return Optional.of(found);
+    }
+    return Optional.empty();
+  }
+
+  public Artifact findArtifact(InstallableUnit unit) {
+    return findArtifact(unit, null);
+  }
+
+  /**
+   * Find the artifact of a unit
+   *
+   * @param unit the unit
+   * @param classifier the artifact classifier like {@code source}, null for the unit's own artifact
+   * @return the artifact, null if no site has it
+   */
+  public Artifact findArtifact(InstallableUnit unit, String classifier) {
+    return artifacts.get(classifier == null ? unit.id : unit.id + "." + classifier);
+  }
+}
@@ -0,0 +1,374 @@
+package org.eclipse.birt.publisher;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import org.eclipse.birt.publisher.metadata.Artifact;
+import org.eclipse.birt.publisher.metadata.InstallableUnit;
+import org.eclipse.birt.publisher.metadata.Interner;
+import org.eclipse.birt.publisher.metadata.MavenCoordinates;
+import org.eclipse.birt.publisher.metadata.PropertyTable;
+import org.eclipse.birt.publisher.metadata.ProvidedCapability;
+import org.eclipse.birt.publisher.metadata.RequiredCapability;
+import org.eclipse.birt.publisher.metadata.Version;
+import org.eclipse.birt.publisher.metadata.VersionRange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Binary snapshot of the parsed metadata of a site.
+ *
+ * <p>The snapshot is keyed by the checksum of the metadata files it was created from, so it's only
+ * used as long as the metadata doesn't change. All the strings are stored once in a string table
+ * and the records refer to them by index.
+ */
+public class Snapshot {
+
+  private static final Logger log = LoggerFactory.getLogger(Snapshot.class);
+
+  private static final int MAGIC = 0x50325331; // P2S1
+
+  // Increase when the layout or the parsed model changes
+  private static final int FORMAT = 2;
+
+  public final List<InstallableUnit> units;
+
+  public final List<Artifact> artifacts;
+
+  private Snapshot(List<InstallableUnit> units, List<Artifact> artifacts) {
+    this.units = units;
+    this.artifacts = artifacts;
+  }
+
+  /**
+   * Compute the snapshot key of the metadata files
+   *
+   * @param files the metadata files
+   * @return the checksum of the files
+   * @throws IOException if the files can't be read
+   */
+  public static long checksum(Path... files) throws IOException {
+    var crc = new CRC32C();
+    for (var file : files) {
+      try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        crc.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+      }
+    }
+    return crc.getValue();
+  }
+
+  /**
+   * Write a snapshot
+   *
+   * @param file the snapshot file
+   * @param key the checksum of the metadata files
+   * @param units the units to store
+   * @param artifacts the artifacts to store
+   * @throws IOException if the file can't be written
+   */
+  public static void write(
+      Path file, long key, List<InstallableUnit> units, List<Artifact> artifacts)
+      throws IOException {
+    var writer = new Writer();
+    writer.out.writeInt(units.size());
+    for (var unit : units) {
+      writer.writeUnit(unit);
+    }
+    writer.writeArtifacts(artifacts);
+
+    var temp = file.resolveSibling(file.getFileName() + ".part");
+    try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT);
+      out.writeLong(key);
+      out.writeInt(writer.strings.size());
+      for (var text : writer.strings.keySet()) {
+        var bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+      writer.bytes.writeTo(out);
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Read a snapshot
+   *
+   * @param file the snapshot file
+   * @param key the checksum of the metadata files
+   * @param site the site the metadata belongs to
+   * @return the snapshot, null if there is no valid snapshot for the key
+   * @throws IOException if the file can't be read
+   */
+  public static Snapshot read(Path file, long key, Site site) throws IOException {
+    if (Files.notExists(file)) {
+      return null;
+    }
+
+    try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT || buffer.getLong() != key) {
+        return null;
+      }
+
+      var reader = new Reader(buffer, site);
+      var count = reader.readCount(Integer.BYTES);
+      var units = new ArrayList<InstallableUnit>(count);
+      for (var i = 0; i < count; i++) {
+        units.add(reader.readUnit());
+      }
+
+      return new Snapshot(units, reader.readArtifacts());
+    } catch (RuntimeException e) {
+      // Underflows, bad indexes or counts of a corrupted file
+      log.warn("Ignoring corrupted snapshot {}: {}", file, e.toString());
+      return null;
+    }
+  }
+
+  private static class Writer {
+
+    private final Map<String, Integer> strings = new LinkedHashMap<>();
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 20);
+    private final DataOutputStream out = new DataOutputStream(bytes);
+
+    private void writeString(String text) throws IOException {
+      out.writeInt(text == null ? -1 : strings.computeIfAbsent(text, x -> strings.size()));
+    }
+
+    private void writeVersion(Version version) throws IOException {
+      out.writeInt(version.major);
+      out.writeInt(version.minor);
+      out.writeInt(version.micro);
+      writeString(version.qualifier);
+    }
+
+    private void writeProperties(Map<String, String> props) throws IOException {
+      out.writeInt(props.size());
+      for (var entry : props.entrySet()) {
+        writeString(entry.getKey());
+        writeString(entry.getValue());
+      }
+    }
+
+    private void writeMaven(MavenCoordinates maven) throws IOException {
+      out.writeBoolean(maven != null);
+      if (maven != null) {
+        writeString(maven.groupId);
+        writeString(maven.artifactId);
+        writeString(maven.version);
+        writeString(maven.classifier);
+        writeString(maven.type);
+      }
+    }
+
+    private void writeUnit(InstallableUnit unit) throws IOException {
+      writeString(unit.id);
+      writeString(unit.version);
+      writeString(unit.name);
+      writeString(unit.description);
+      writeProperties(unit.properties);
+      writeMaven(unit.maven);
+
+      out.writeInt(unit.provides.size());
+      for (var provided : unit.provides) {
+        writeString(provided.namespace);
+        writeString(provided.name);
+        writeVersion(provided.version);
+      }
+
+      out.writeInt(unit.requires.size());
+      for (var required : unit.requires) {
+        writeString(required.namespace);
+        writeString(required.name);
+        writeVersion(required.range.minimum);
+        out.writeBoolean(required.range.includeMinimum);
+        out.writeBoolean(required.range.maximum != null);
+        if (required.range.maximum != null) {
+          writeVersion(required.range.maximum);
+        }
+        out.writeBoolean(required.range.includeMaximum);
+        out.writeBoolean(required.optional);
+        out.writeBoolean(required.greedy);
+      }
+
+      out.writeInt(unit.artifacts.size());
+      for (var artifact : unit.artifacts) {
+        writeString(artifact.id);
+        writeString(artifact.version);
+        writeString(artifact.classifier);
+      }
+    }
+
+    private void writeArtifacts(List<Artifact> artifacts) throws IOException {
+      out.writeInt(artifacts.size());
+      for (var artifact : artifacts) {
+        writeString(artifact.id);
+        writeString(artifact.version);
+        writeString(artifact.classifier);
+        writeProperties(artifact.properties);
+        writeMaven(artifact.maven);
+        writeString(artifact.size);
+        writeString(artifact.sha1);
+        writeString(artifact.sha256);
+        writeString(artifact.sha512);
+      }
+    }
+  }
+
+  private static class Reader {
+
+    private final ByteBuffer buffer;
+    private final Site site;
+    private final String[] strings;
+
+    private Reader(ByteBuffer buffer, Site site) {
+      this.buffer = buffer;
+      this.site = site;
+      this.strings = new String[readCount(Integer.BYTES)];
+      for (var i = 0; i < strings.length; i++) {
+        var bytes = new byte[readCount(1)];
+        buffer.get(bytes);
+        strings[i] = Interner.intern(new String(bytes, StandardCharsets.UTF_8));
+      }
+    }
+
+    /**
+     * Read a count or a length, checked against the bytes left before anything is allocated
+     *
+     * @param size the fewest bytes each counted element takes
+     */
+    private int readCount(int size) {
+      var count = buffer.getInt();
+      if (count < 0 || (long) count * size > buffer.remaining()) {
+        throw new BufferUnderflowException();
+      }
+      return count;
+    }
+
+    private String readString() {
+      var index = buffer.getInt();
+      return index < 0 ? null : strings[index];
+    }
+
+    private boolean readBoolean() {
+      return buffer.get() != 0;
+    }
+
+    private Version readVersion() {
+      return Interner.intern(
+          new Version(buffer.getInt(), buffer.getInt(), buffer.getInt(), readString()));
+    }
+
+    private Map<String, String> readProperties() {
+      var count = readCount(2 * Integer.BYTES);
+      var props = new HashMap<String, String>(count * 2);
+      for (var i = 0; i < count; i++) {
+        props.put(readString(), readString());
+      }
+      return PropertyTable.of(props);
+    }
+
+    private MavenCoordinates readMaven() {
+      if (!readBoolean()) {
+        return null;
+      }
+      var maven = new MavenCoordinates();
+      maven.groupId = readString();
+      maven.artifactId = readString();
+      maven.version = readString();
+      maven.classifier = readString();
+      maven.type = readString();
+      maven.properties = Map.of();
+      return maven;
+    }
+
+    private InstallableUnit readUnit() {
+      var unit = new InstallableUnit();
+      unit.id = readString();
+      unit.version = readString();
+      unit.name = readString();
+      unit.description = readString();
+      unit.properties = readProperties();
+      unit.maven = readMaven();
+      unit.site = site;
+
+      var provides = readCount(Integer.BYTES);
+      for (var i = 0; i < provides; i++) {
+        var provided = new ProvidedCapability();
+        provided.namespace = readString();
+        provided.name = readString();
+        provided.version = readVersion();
+        unit.provides.add(Interner.intern(provided));
+      }
+
+      var requires = readCount(Integer.BYTES);
+      for (var i = 0; i < requires; i++) {
+        var required = new RequiredCapability();
+        required.namespace = readString();
+        required.name = readString();
+        var minimum = readVersion();
+        var includeMinimum = readBoolean();
+        var maximum = readBoolean() ? readVersion() : null;
+        var includeMaximum = readBoolean();
+        required.range =
+            Interner.intern(new VersionRange(minimum, includeMinimum, maximum, includeMaximum));
+        required.optional = readBoolean();
+        required.greedy = readBoolean();
+        unit.requires.add(Interner.intern(required));
+      }
+
+      var artifacts = readCount(Integer.BYTES);
+      for (var i = 0; i < artifacts; i++) {
+        var artifact = new Artifact();
+        artifact.id = readString();
+        artifact.version = readString();
+        artifact.classifier = readString();
+        artifact.properties = Map.of();
+        unit.artifacts.add(artifact);
+      }
+
+      // Trim the lists to flat arrays
+      unit.provides = List.copyOf(unit.provides);
+      unit.requires = List.copyOf(unit.requires);
+      unit.artifacts = List.copyOf(unit.artifacts);
+      return unit;
+    }
+
+    private List<Artifact> readArtifacts() {
+      var count = readCount(Integer.BYTES);
+      var artifacts = new ArrayList<Artifact>(count);
+      for (var i = 0; i < count; i++) {
+        var artifact = new Artifact();
+        artifact.id = readString();
+        artifact.version = readString();
+        artifact.classifier = readString();
+        artifact.properties = readProperties();
+        artifact.maven = readMaven();
+        artifact.size = readString();
+        artifact.sha1 = readString();
+        artifact.sha256 = readString();
+        artifact.sha512 = readString();
+        site.locate(artifact);
+        artifacts.add(artifact);
+      }
+      return artifacts;
+    }
+  }
+}
@@ -26,6 +26,23 @@ public class Artifact {
   public String sha512;
   public String sha256;
 
+  /** The published download size, zero if it's missing or malformed */
+  public long getSize() {
+    try {
+      return size == null ? 0 : Long.parseLong(size);
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  /** The strongest checksum published for the artifact, null if there is none */
+  public Checksum getChecksum() {
+    if (sha512 != null) return new Checksum("SHA-512", sha512);
+    if (sha256 != null) return new Checksum("SHA-256", sha256);
+    if (sha1 != null) return new Checksum("SHA-1", sha1);
+    return null;
+  }
+
   @Override
   public int hashCode() {
     return Objects.hash(id, version, classifier);
@@ -0,0 +1,21 @@
+package org.eclipse.birt.publisher.metadata;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A checksum published in the p2 metadata
+ *
+ * @param algorithm the {@link MessageDigest} algorithm
+ * @param value the hex encoded digest
+ */
+public record Checksum(String algorithm, String value) {
+
+  public MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance(algorithm);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package org.eclipse.birt.publisher.metadata;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared pools of the metadata values.
+ *
+ * <p>Namespaces, capability names, versions, ranges, property texts and whole capabilities repeat a
+ * lot across the units of the sites, so we keep a single instance of each.
+ */
+public final class Interner {
+
+  private static final Map<String, String> strings = new ConcurrentHashMap<>();
+  private static final Map<String, Version> versions = new ConcurrentHashMap<>();
+  private static final Map<String, VersionRange> ranges = new ConcurrentHashMap<>();
+  private static final Map<Version, Version> versionValues = new ConcurrentHashMap<>();
+  private static final Map<VersionRange, VersionRange> rangeValues = new ConcurrentHashMap<>();
+
+  private static final Map<ProvidedCapability, ProvidedCapability> provided =
+      new ConcurrentHashMap<>();
+  private static final Map<Requirement, RequiredCapability> required = new ConcurrentHashMap<>();
+
+  private static record Requirement(
+      String namespace, String name, VersionRange range, boolean optional, boolean greedy) {}
+
+  private Interner() {}
+
+  public static String intern(String text) {
+    if (text == null) return null;
+    var existing = strings.putIfAbsent(text, text);
+    return existing == null ? text : existing;
+  }
+
+  public static Version intern(Version version) {
+    if (version == null) return null;
+    var existing = versionValues.putIfAbsent(version, version);
+    return existing == null ? version : existing;
+  }
+
+  public static VersionRange intern(VersionRange range) {
+    if (range == null) return null;
+    var existing = rangeValues.putIfAbsent(range, range);
+    return existing == null ? range : existing;
+  }
+
+  /** Share identical capabilities, they must not be modified afterwards */
+  public static ProvidedCapability intern(ProvidedCapability capability) {
+    var existing = provided.putIfAbsent(capability, capability);
+    return existing == null ? capability : existing;
+  }
+
+  /** Share identical requirements, they must not be modified afterwards */
+  public static RequiredCapability intern(RequiredCapability requirement) {
+    var key =
+        new Requirement(
+            requirement.namespace,
+            requirement.name,
+            requirement.range,
+            requirement.optional,
+            requirement.greedy);
+    var existing = required.putIfAbsent(key, requirement);
+    return existing == null ? requirement : existing;
+  }
+
+  /** Parse a version, each distinct text is parsed only once */
+  public static Version version(String text) {
+    return versions.computeIfAbsent(text, x -> intern(Version.parse(x)));
+  }
+
+  /** Parse a version range, each distinct text is parsed only once */
+  public static VersionRange range(String text) {
+    return ranges.computeIfAbsent(text, x -> intern(VersionRange.parse(x)));
+  }
+}
@@ -0,0 +1,122 @@
+package org.eclipse.birt.publisher.metadata;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable property map stored as flat arrays.
+ *
+ * <p>Units of the same kind have the same property keys, so the key array is shared between all the
+ * tables with the same keys and each table only holds its values. Lookups scan the keys, which is
+ * cheap for the handful of properties a unit has.
+ *
+ * <p>Translated values like {@code %bundleName} are resolved against the {@code df_LT.bundleName}
+ * property of the same table when they are read.
+ */
+public final class PropertyTable extends AbstractMap<String, String> {
+
+  private static final Map<List<String>, String[]> layouts = new ConcurrentHashMap<>();
+
+  private final String[] keys;
+  private final String[] values;
+
+  private PropertyTable(String[] keys, String[] values) {
+    this.keys = keys;
+    this.values = values;
+  }
+
+  /**
+   * Create a compact copy of a property map
+   *
+   * @param props the properties
+   * @return the immutable copy
+   */
+  public static Map<String, String> of(Map<String, String> props) {
+    if (props.isEmpty()) {
+      return Map.of();
+    }
+
+    var keys = new String[props.size()];
+    var values = new String[props.size()];
+    var i = 0;
+    for (var entry : props.entrySet()) {
+      keys[i] = Interner.intern(entry.getKey());
+      values[i] = Interner.intern(entry.getValue());
+      i++;
+    }
+
+    var layout = layouts.computeIfAbsent(Arrays.asList(keys), x -> keys);
+    return new PropertyTable(layout, values);
+  }
+
+  private String resolve(String value) {
+    if (value.length() > 1 && value.charAt(0) == '%') {
+      var index = indexOf("df_LT." + value.substring(1));
+      if (index >= 0) return values[index];
+    }
+    return value;
+  }
+
+  private int indexOf(Object key) {
+    for (var i = 0; i < keys.length; i++) {
+      if (keys[i] == key) return i;
+    }
+    for (var i = 0; i < keys.length; i++) {
+      if (keys[i].equals(key)) return i;
+    }
+    return -1;
+  }
+
+  @Override
+  public String get(Object key) {
+    var index = indexOf(key);
+    return index < 0 ? null : resolve(values[index]);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return indexOf(key) >= 0;
+  }
+
+  @Override
+  public int size() {
+    return keys.length;
+  }
+
+  @Override
+  public Set<Entry<String, String>> entrySet() {
+    return new AbstractSet<>() {
+      @Override
+      public Iterator<Entry<String, String>> iterator() {
+        return new Iterator<>() {
+          private int index;
+
+          @Override
+          public boolean hasNext() {
+            return index < keys.length;
+          }
+
+          @Override
+          public Entry<String, String> next() {
+            if (index >= keys.length) throw new NoSuchElementException();
+            var entry = new SimpleImmutableEntry<>(keys[index], resolve(values[index]));
+            index++;
+            return entry;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return keys.length;
+      }
+    };
+  }
+}
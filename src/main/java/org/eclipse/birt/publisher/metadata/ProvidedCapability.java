@@ -8,15 +8,12 @@ public class ProvidedCapability {
 
   public String name;
 
-  public String version;
+  public Version version;
 
   public boolean isMatch(RequiredCapability requirement) {
-    // We ignore the version for now
-    if (Objects.equals(namespace, requirement.namespace)
-        && Objects.equals(name, requirement.name)) {
-      return true;
-    }
-    return false;
+    return Objects.equals(namespace, requirement.namespace)
+        && Objects.equals(name, requirement.name)
+        && requirement.range.includes(version);
   }
 
   @Override
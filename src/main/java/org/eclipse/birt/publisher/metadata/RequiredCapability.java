@@ -8,7 +8,7 @@ public class RequiredCapability {
 
   public String name;
 
-  public String range;
+  public VersionRange range = VersionRange.ANY;
 
   public boolean optional;
 
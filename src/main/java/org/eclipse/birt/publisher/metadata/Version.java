@@ -0,0 +1,81 @@
+package org.eclipse.birt.publisher.metadata;
+
+import java.util.Objects;
+
+/**
+ * An OSGi version ({@code major.minor.micro.qualifier}) parsed once into comparable fields.
+ *
+ * <p>Versions which are not in the OSGi format (e.g. p2 {@code raw:} versions) are kept as the
+ * qualifier of {@code 0.0.0}, so they still compare in a stable way.
+ */
+public final class Version implements Comparable<Version> {
+
+  public static final Version EMPTY = new Version(0, 0, 0, "");
+
+  public final int major;
+
+  public final int minor;
+
+  public final int micro;
+
+  public final String qualifier;
+
+  public Version(int major, int minor, int micro, String qualifier) {
+    this.major = major;
+    this.minor = minor;
+    this.micro = micro;
+    this.qualifier = qualifier == null ? "" : qualifier;
+  }
+
+  /**
+   * Parse a version string
+   *
+   * @param text the version text, may be null or empty
+   * @return the parsed version, {@link #EMPTY} if the text is empty
+   */
+  public static Version parse(String text) {
+    if (text == null || text.isBlank()) {
+      return EMPTY;
+    }
+
+    var parts = text.trim().split("\\.", 4);
+    var numbers = new int[3];
+    for (var i = 0; i < Math.min(parts.length, 3); i++) {
+      try {
+        numbers[i] = Integer.parseInt(parts[i]);
+      } catch (NumberFormatException e) {
+        return new Version(0, 0, 0, text.trim());
+      }
+    }
+
+    var qualifier = parts.length > 3 ? parts[3] : "";
+    return new Version(numbers[0], numbers[1], numbers[2], qualifier);
+  }
+
+  @Override
+  public int compareTo(Version other) {
+    var result = Integer.compare(major, other.major);
+    if (result == 0) result = Integer.compare(minor, other.minor);
+    if (result == 0) result = Integer.compare(micro, other.micro);
+    if (result == 0) result = qualifier.compareTo(other.qualifier);
+    return result;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(major, minor, micro, qualifier);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) return true;
+    if (obj == null) return false;
+    return obj instanceof Version other && compareTo(other) == 0;
+  }
+
+  @Override
+  public String toString() {
+    var text = major + "." + minor + "." + micro;
+    return qualifier.isEmpty() ? text : text + "." + qualifier;
+  }
+}
@@ -0,0 +1,99 @@
+package org.eclipse.birt.publisher.metadata;
+
+import java.util.Objects;
+
+/**
+ * An OSGi version range like {@code [1.0.0,2.0.0)}.
+ *
+ * <p>A single version ({@code 1.0.0}) means that version or higher, an empty range matches all
+ * versions.
+ */
+public final class VersionRange {
+
+  public static final VersionRange ANY = new VersionRange(Version.EMPTY, true, null, false);
+
+  public final Version minimum;
+
+  public final boolean includeMinimum;
+
+  /** The upper bound, null if unbounded */
+  public final Version maximum;
+
+  public final boolean includeMaximum;
+
+  public VersionRange(
+      Version minimum, boolean includeMinimum, Version maximum, boolean includeMaximum) {
+    this.minimum = minimum;
+    this.includeMinimum = includeMinimum;
+    this.maximum = maximum;
+    this.includeMaximum = includeMaximum;
+  }
+
+  /**
+   * Parse a version range string
+   *
+   * @param text the range text, may be null or empty
+   * @return the parsed range, {@link #ANY} if the text is empty
+   */
+  public static VersionRange parse(String text) {
+    if (text == null || text.isBlank()) {
+      return ANY;
+    }
+
+    var range = text.trim();
+    var first = range.charAt(0);
+    var last = range.charAt(range.length() - 1);
+    var comma = range.indexOf(',');
+
+    if ((first != '[' && first != '(') || comma < 0) {
+      return new VersionRange(Version.parse(range), true, null, false);
+    }
+
+    var minimum = Version.parse(range.substring(1, comma));
+    var maximum = Version.parse(range.substring(comma + 1, range.length() - 1));
+
+    return new VersionRange(minimum, first == '[', maximum, last == ']');
+  }
+
+  /** Check whether the version is above the lower bound */
+  public boolean isAboveMinimum(Version version) {
+    var result = version.compareTo(minimum);
+    return includeMinimum ? result >= 0 : result > 0;
+  }
+
+  /** Check whether the version is below the upper bound */
+  public boolean isBelowMaximum(Version version) {
+    if (maximum == null) return true;
+    var result = version.compareTo(maximum);
+    return includeMaximum ? result <= 0 : result < 0;
+  }
+
+  public boolean includes(Version version) {
+    return version != null && isAboveMinimum(version) && isBelowMaximum(version);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(minimum, includeMinimum, maximum, includeMaximum);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) return true;
+    if (obj == null) return false;
+    return obj instanceof VersionRange other
+        && Objects.equals(minimum, other.minimum)
+        && includeMinimum == other.includeMinimum
+        && Objects.equals(maximum, other.maximum)
+        && includeMaximum == other.includeMaximum;
+  }
+
+  @Override
+  public String toString() {
+    if (maximum == null) {
+      return minimum.toString();
+    }
+    return String.format(
+        "%s%s,%s%s", includeMinimum ? "[" : "(", minimum, maximum, includeMaximum ? "]" : ")");
+  }
+}
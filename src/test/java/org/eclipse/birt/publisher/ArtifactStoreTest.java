@@ -0,0 +1,95 @@
+package org.eclipse.birt.publisher;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import org.eclipse.birt.publisher.metadata.Artifact;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ArtifactStoreTest {
+
+  @TempDir Path dir;
+
+  private static Artifact artifact(Site site, String version, byte[] content) throws Exception {
+    var artifact = new Artifact();
+    artifact.id = "org.example.a";
+    artifact.version = version;
+    artifact.classifier = "osgi.bundle";
+    artifact.sha512 =
+        HexFormat.of().formatHex(MessageDigest.getInstance("SHA-512").digest(content));
+    site.locate(artifact);
+    return artifact;
+  }
+
+  @Test
+  public void testShared() throws Exception {
+    var content = "content".getBytes();
+    try (var server = new TestServer()) {
+      server.put("/first/plugins/org.example.a_1.0.0.jar", content, null, null);
+      server.put("/second/plugins/org.example.a_1.0.0.jar", content, null, null);
+      server.put("/second/plugins/org.example.a_1.0.1.jar", content, null, null);
+
+      var first = artifact(new Site("first", server.url("/first")), "1.0.0", content);
+      var second = artifact(new Site("second", server.url("/second")), "1.0.0", content);
+      var renamed = artifact(new Site("second", server.url("/second")), "1.0.1", content);
+
+      var store = new ArtifactStore(dir.resolve("store"));
+      for (var artifact : new Artifact[] {first, second, renamed}) {
+        store.fetch(artifact, dir.resolve(artifact.file));
+      }
+
+      // Downloaded once, the same content is shared by all the site paths
+      assertEquals(1, server.requests.size());
+      assertEquals(1, store.getMisses());
+      assertEquals(2, store.getHits());
+      var stored = store.path(first.sha512);
+      for (var artifact : new Artifact[] {first, second, renamed}) {
+        var file = dir.resolve(artifact.file);
+        assertArrayEquals(content, Files.readAllBytes(file));
+        assertTrue(Files.isSameFile(stored, file));
+      }
+    }
+  }
+
+  @Test
+  public void testCorrupted() throws Exception {
+    var content = "content".getBytes();
+    try (var server = new TestServer()) {
+      server.put("/first/plugins/org.example.a_1.0.0.jar", content, null, null);
+      var artifact = artifact(new Site("first", server.url("/first")), "1.0.0", content);
+
+      // A stored file truncated by an earlier run is downloaded again
+      var store = new ArtifactStore(dir.resolve("store"));
+      var stored = store.path(artifact.sha512);
+      Files.createDirectories(stored.getParent());
+      Files.write(stored, new byte[] {1});
+      store.fetch(artifact, dir.resolve(artifact.file));
+      assertEquals(1, store.getMisses());
+      assertArrayEquals(content, Files.readAllBytes(dir.resolve(artifact.file)));
+
+      // So is a corrupted site file
+      Files.delete(dir.resolve(artifact.file));
+      Files.write(dir.resolve(artifact.file), new byte[] {2});
+      store.fetch(artifact, dir.resolve(artifact.file));
+      assertEquals(1, store.getHits());
+      assertArrayEquals(content, Files.readAllBytes(dir.resolve(artifact.file)));
+      assertEquals(1, server.requests.size());
+    }
+  }
+
+  @Test
+  public void testInvalidDigest() throws Exception {
+    var store = new ArtifactStore(dir.resolve("store"));
+    assertNull(store.path("a"));
+    assertNull(store.path("../../" + "a".repeat(122)));
+    assertNotNull(store.path("A".repeat(128)));
+  }
+}
@@ -0,0 +1,272 @@
+package org.eclipse.birt.publisher;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.stream.IntStream;
+import org.eclipse.birt.publisher.metadata.Checksum;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ClientTest {
+
+  @TempDir Path dir;
+
+  private TestServer server;
+
+  @BeforeEach
+  public void start() throws Exception {
+    server = new TestServer();
+  }
+
+  @AfterEach
+  public void stop() {
+    server.close();
+  }
+
+  @Test
+  public void testRefreshETag() throws Exception {
+    var file = dir.resolve("content.xml");
+    var url = server.url("/content.xml");
+    server.put("/content.xml", "v1".getBytes(), "\"1\"", null);
+
+    assertTrue(Client.refresh(url, file));
+    assertEquals("v1", Files.readString(file));
+    assertNull(server.requests.getLast().header("If-None-Match"));
+
+    // Unchanged, the cached file is kept
+    assertTrue(Client.refresh(url, file));
+    assertEquals("\"1\"", server.requests.getLast().header("If-None-Match"));
+    assertEquals("v1", Files.readString(file));
+
+    // Changed, downloaded again
+    server.put("/content.xml", "v2".getBytes(), "\"2\"", null);
+    assertTrue(Client.refresh(url, file));
+    assertEquals("v2", Files.readString(file));
+    assertTrue(Client.refresh(url, file));
+    assertEquals("\"2\"", server.requests.getLast().header("If-None-Match"));
+    assertEquals(4, server.requests.size());
+
+    // Removed from the server
+    server.remove("/content.xml");
+    assertFalse(Client.refresh(url, file));
+    assertFalse(Files.exists(file));
+  }
+
+  @Test
+  public void testRefreshLastModified() throws Exception {
+    var file = dir.resolve("p2.index");
+    var url = server.url("/p2.index");
+    var date = "Wed, 21 Oct 2025 07:28:00 GMT";
+    server.put("/p2.index", "a=b".getBytes(), null, date);
+
+    assertTrue(Client.refresh(url, file));
+    assertTrue(Client.refresh(url, file));
+    assertEquals(date, server.requests.getLast().header("If-Modified-Since"));
+    assertEquals("a=b", Files.readString(file));
+  }
+
+  @Test
+  public void testRefreshWithoutValidators() throws Exception {
+    // Files cached without validators are used as they are
+    var file = Files.writeString(dir.resolve("content.xml"), "cached");
+    server.put("/content.xml", "v1".getBytes(), "\"1\"", null);
+
+    assertTrue(Client.refresh(server.url("/content.xml"), file));
+    assertEquals("cached", Files.readString(file));
+    assertTrue(server.requests.isEmpty());
+  }
+
+  @Test
+  public void testRefreshOffline() throws Exception {
+    var file = dir.resolve("content.xml");
+    var url = server.url("/content.xml");
+    server.put("/content.xml", "v1".getBytes(), "\"1\"", null);
+    assertTrue(Client.refresh(url, file));
+
+    // The cached file is used when the server can't be reached
+    server.close();
+    assertTrue(Client.refresh(url, file));
+    assertEquals("v1", Files.readString(file));
+  }
+
+  private static byte[] content(int size) {
+    var content = new byte[size];
+    for (var i = 0; i < size; i++) {
+      content[i] = (byte) (i * 31);
+    }
+    return content;
+  }
+
+  @Test
+  public void testResume() throws Exception {
+    var content = content(100_000);
+    server.put("/plugins/a.jar", content, "\"a\"", null);
+    server.failAfter = 40_000;
+
+    var file = dir.resolve("a.jar");
+    Client.download(server.url("/plugins/a.jar"), file);
+
+    assertArrayEquals(content, Files.readAllBytes(file));
+    assertEquals(2, server.requests.size());
+    assertNull(server.requests.getFirst().header("Range"));
+    var resumed = server.requests.getLast();
+    assertEquals("bytes=40000-", resumed.header("Range"));
+    assertEquals("\"a\"", resumed.header("If-Range"));
+    assertFalse(Files.exists(dir.resolve("a.jar.part")));
+    assertFalse(Files.exists(dir.resolve("a.jar.part.validators")));
+  }
+
+  @Test
+  public void testResumeChanged() throws Exception {
+    // A partial file of an older version of the remote file is downloaded again
+    var content = content(1000);
+    server.put("/plugins/a.jar", content, "\"new\"", null);
+    Files.write(dir.resolve("a.jar.part"), new byte[] {1, 2, 3});
+    Files.writeString(dir.resolve("a.jar.part.validators"), "ETag=\"old\"\n");
+
+    var file = dir.resolve("a.jar");
+    Client.download(server.url("/plugins/a.jar"), file);
+
+    assertArrayEquals(content, Files.readAllBytes(file));
+    assertEquals("\"old\"", server.requests.getLast().header("If-Range"));
+  }
+
+  @Test
+  public void testResumeComplete() throws Exception {
+    // The partial file is already complete, the server can't send the rest
+    var content = content(1000);
+    server.put("/plugins/a.jar", content, "\"a\"", null);
+    Files.write(dir.resolve("a.jar.part"), content);
+    Files.writeString(dir.resolve("a.jar.part.validators"), "ETag=\"a\"\n");
+
+    var file = dir.resolve("a.jar");
+    Client.download(server.url("/plugins/a.jar"), file);
+
+    assertArrayEquals(content, Files.readAllBytes(file));
+    assertEquals(2, server.requests.size());
+  }
+
+  private static String sha512(byte[] content) throws Exception {
+    return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-512").digest(content));
+  }
+
+  @Test
+  public void testChecksum() throws Exception {
+    var content = content(100_000);
+    server.put("/plugins/a.jar", content, "\"a\"", null);
+    server.failAfter = 30_000;
+
+    // The digest covers the resumed part too
+    var file = dir.resolve("a.jar");
+    Client.download(server.url("/plugins/a.jar"), file, new Checksum("SHA-512", sha512(content)));
+    assertArrayEquals(content, Files.readAllBytes(file));
+    assertEquals(2, server.requests.size());
+  }
+
+  @Test
+  public void testChecksumMismatch() throws Exception {
+    server.put("/plugins/a.jar", content(1000), null, null);
+
+    // The partial file is never promoted
+    var file = dir.resolve("a.jar");
+    var checksum = new Checksum("SHA-512", sha512(new byte[] {1}));
+    assertThrows(
+        RuntimeException.class,
+        () -> Client.download(server.url("/plugins/a.jar"), file, checksum));
+    assertFalse(Files.exists(file));
+    assertFalse(Files.exists(dir.resolve("a.jar.part")));
+  }
+
+  @Test
+  public void testChecksumCached() throws Exception {
+    var content = content(1000);
+    server.put("/plugins/a.jar", content, null, null);
+    var checksum = new Checksum("SHA-512", sha512(content));
+
+    // A truncated file from an earlier run is downloaded again
+    var file = dir.resolve("a.jar");
+    Files.write(file, new byte[] {1, 2, 3});
+    Client.download(server.url("/plugins/a.jar"), file, checksum);
+    assertArrayEquals(content, Files.readAllBytes(file));
+    assertEquals(1, server.requests.size());
+
+    // A matching file is used as it is
+    Client.download(server.url("/plugins/a.jar"), file, checksum);
+    assertEquals(1, server.requests.size());
+  }
+
+  @Test
+  public void testClose() throws Exception {
+    server.put("/a.jar", "a".getBytes(), null, null);
+    Client.download(server.url("/a.jar"), dir.resolve("a.jar"));
+
+    // A new client is created after the shared one is closed
+    Client.close();
+    Client.download(server.url("/a.jar"), dir.resolve("b.jar"));
+    assertEquals("a", Files.readString(dir.resolve("b.jar")));
+  }
+
+  /**
+   * Compare the shared client against a new client per request.
+   *
+   * <p>Run with {@code -Dbenchmark=true}.
+   */
+  @Test
+  @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+  public void benchmark() throws Exception {
+    var count = Integer.getInteger("benchmark.files", 500);
+    var content = new byte[64 << 10];
+    for (var i = 0; i < count; i++) {
+      server.put("/plugins/" + i + ".jar", content, null, null);
+    }
+    var files = IntStream.range(0, count).boxed().toList();
+
+    for (var round = 0; round < 3; round++) {
+      var target = Files.createDirectories(dir.resolve("perRequest" + round));
+      var start = System.nanoTime();
+      files.parallelStream()
+          .forEach(
+              i -> {
+                var request =
+                    HttpRequest.newBuilder(URI.create(server.url("/plugins/" + i + ".jar")))
+                        .build();
+                try (var client = HttpClient.newHttpClient()) {
+                  client.send(request, BodyHandlers.ofFile(target.resolve(i + ".jar")));
+                } catch (Exception e) {
+                  throw new RuntimeException(e);
+                }
+              });
+      var perRequest = System.nanoTime() - start;
+
+      var shared = Files.createDirectories(dir.resolve("shared" + round));
+      start = System.nanoTime();
+      files.parallelStream()
+          .forEach(
+              i ->
+                  Client.download(
+                      server.url("/plugins/" + i + ".jar"), shared.resolve(i + ".jar")));
+      var reused = System.nanoTime() - start;
+
+      var megabytes = count * (double) content.length / (1 << 20);
+      System.out.printf(
+          "Round %d: client per request %.0f MB/s, shared client %.0f MB/s%n",
+          round, megabytes / (perRequest / 1e9), megabytes / (reused / 1e9));
+    }
+  }
+}
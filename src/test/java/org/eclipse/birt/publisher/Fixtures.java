@@ -0,0 +1,120 @@
+package org.eclipse.birt.publisher;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** Generates synthetic p2 metadata in the layout published by the Eclipse update sites. */
+public class Fixtures {
+
+  public static String unitId(int i) {
+    return "org.example.bundle" + (i % 1000) + ".part" + (i / 1000);
+  }
+
+  public static Path contentXml(Path dir, int count) throws IOException {
+    var file = dir.resolve("content.xml");
+    Files.createDirectories(dir);
+    try (var writer = Files.newBufferedWriter(file)) {
+      writer.write("<?xml version='1.0' encoding='UTF-8'?>\n");
+      writer.write("<?metadataRepository version='1.2.0'?>\n");
+      writer.write("<repository name='fixture' version='1'>\n");
+      writer.write(
+          "  <properties size='1'><property name='p2.timestamp' value='1'/></properties>\n");
+      writer.write("  <units size='" + count + "'>\n");
+      for (var i = 0; i < count; i++) {
+        writeUnit(writer, i, count);
+      }
+      writer.write("  </units>\n");
+      writer.write("</repository>\n");
+    }
+    return file;
+  }
+
+  private static void writeUnit(Writer writer, int i, int count) throws IOException {
+    var id = unitId(i);
+    var version = "1." + (i % 7) + ".0.v2025";
+    writer.write("    <unit id='" + id + "' version='" + version + "'>\n");
+    writer.write("      <update id='" + id + "' range='[0.0.0,1.0.0)' severity='0'/>\n");
+    writer.write("      <properties size='8'>\n");
+    writer.write("        <property name='df_LT.bundleName' value='Bundle " + i + "'/>\n");
+    writer.write("        <property name='df_LT.providerName' value='Eclipse.org'/>\n");
+    writer.write("        <property name='df_LT.license' value='" + "License text. ".repeat(20));
+    writer.write("'/>\n");
+    writer.write("        <property name='org.eclipse.equinox.p2.name' value='%bundleName'/>\n");
+    writer.write(
+        "        <property name='org.eclipse.equinox.p2.provider' value='%providerName'/>\n");
+    writer.write("        <property name='maven-groupId' value='org.example'/>\n");
+    writer.write("        <property name='maven-artifactId' value='" + id + "'/>\n");
+    writer.write("        <property name='maven-version' value='1.0.0-SNAPSHOT'/>\n");
+    writer.write("      </properties>\n");
+    writer.write("      <provides size='4'>\n");
+    writer.write("        <provided namespace='org.eclipse.equinox.p2.iu' name='" + id);
+    writer.write("' version='" + version + "'/>\n");
+    writer.write("        <provided namespace='osgi.bundle' name='" + id);
+    writer.write("' version='" + version + "'/>\n");
+    writer.write("        <provided namespace='java.package' name='" + id + ".api'");
+    writer.write(" version='" + version + "'/>\n");
+    writer.write("        <provided namespace='org.eclipse.equinox.p2.eclipse.type' name='bundle'");
+    writer.write(" version='1.0.0'/>\n");
+    writer.write("      </provides>\n");
+    writer.write("      <requires size='3'>\n");
+    for (var j = 1; j <= 3; j++) {
+      var dep = unitId((i + j * 17) % count);
+      writer.write("        <required namespace='osgi.bundle' name='" + dep + "'");
+      writer.write(" range='[1.0.0,2.0.0)'" + (j == 3 ? " optional='true'" : "") + ">\n");
+      writer.write("          <filter>(osgi.os=linux)</filter>\n");
+      writer.write("        </required>\n");
+    }
+    writer.write("      </requires>\n");
+    writer.write("      <metaRequirements size='1'>\n");
+    writer.write("        <required namespace='org.eclipse.equinox.p2.iu'");
+    writer.write(" name='org.eclipse.equinox.p2.osgi' range='0.0.0'/>\n");
+    writer.write("      </metaRequirements>\n");
+    writer.write("      <artifacts size='1'>\n");
+    writer.write("        <artifact classifier='osgi.bundle' id='" + id);
+    writer.write("' version='" + version + "'/>\n");
+    writer.write("      </artifacts>\n");
+    writer.write("      <touchpoint id='org.eclipse.equinox.p2.osgi' version='1.0.0'/>\n");
+    writer.write("      <touchpointData size='1'>\n");
+    writer.write("        <instructions size='1'>\n");
+    writer.write("          <instruction key='manifest'>Bundle-SymbolicName: " + id);
+    writer.write("&#xA;Bundle-Version: " + version + "</instruction>\n");
+    writer.write("        </instructions>\n");
+    writer.write("      </touchpointData>\n");
+    writer.write("    </unit>\n");
+  }
+
+  public static Path artifactsXml(Path dir, int count) throws IOException {
+    var file = dir.resolve("artifacts.xml");
+    Files.createDirectories(dir);
+    try (var writer = Files.newBufferedWriter(file)) {
+      writer.write("<?xml version='1.0' encoding='UTF-8'?>\n");
+      writer.write("<?artifactRepository version='1.1.0'?>\n");
+      writer.write("<repository name='fixture' version='1'>\n");
+      writer.write("  <mappings size='1'>\n");
+      writer.write("    <rule filter='(classifier=osgi.bundle)'");
+      writer.write(" output='${repoUrl}/plugins/${id}_${version}.jar'/>\n");
+      writer.write("  </mappings>\n");
+      writer.write("  <artifacts size='" + count + "'>\n");
+      for (var i = 0; i < count; i++) {
+        var id = unitId(i);
+        var version = "1." + (i % 7) + ".0.v2025";
+        writer.write("    <artifact classifier='osgi.bundle' id='" + id);
+        writer.write("' version='" + version + "'>\n");
+        writer.write("      <properties size='4'>\n");
+        writer.write("        <property name='artifact.size' value='" + (1000 + i) + "'/>\n");
+        writer.write("        <property name='download.size' value='" + (1000 + i) + "'/>\n");
+        writer.write("        <property name='download.checksum.sha-512' value='");
+        writer.write(String.format("%0128x", i) + "'/>\n");
+        writer.write("        <property name='download.contentType'");
+        writer.write(" value='application/java-archive'/>\n");
+        writer.write("      </properties>\n");
+        writer.write("    </artifact>\n");
+      }
+      writer.write("  </artifacts>\n");
+      writer.write("</repository>\n");
+    }
+    return file;
+  }
+}
@@ -0,0 +1,91 @@
+package org.eclipse.birt.publisher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+public class IoSchedulerTest {
+
+  @Test
+  public void testPermits() {
+    var scheduler = new IoScheduler(5, 2);
+    var running = new ConcurrentHashMap<String, AtomicInteger>();
+    var peak = new ConcurrentHashMap<String, Integer>();
+    var total = new AtomicInteger();
+    var totalPeak = new AtomicInteger();
+
+    var items = IntStream.range(0, 30).boxed().toList();
+    scheduler.run(
+        items,
+        i -> {
+          var host = "mirror" + (i % 3);
+          var uri = URI.create("https://" + host + ".example.org/plugins/" + i + ".jar");
+          try {
+            scheduler.request(
+                uri,
+                () -> {
+                  var count = running.computeIfAbsent(host, x -> new AtomicInteger());
+                  peak.merge(host, count.incrementAndGet(), Math::max);
+                  totalPeak.accumulateAndGet(total.incrementAndGet(), Math::max);
+                  Thread.sleep(20);
+                  total.decrementAndGet();
+                  count.decrementAndGet();
+                  return null;
+                });
+          } catch (InterruptedException e) {
+            throw new IOException(e);
+          }
+        });
+
+    // Never more than two requests per host, nor more than five in total
+    assertEquals(Map.of("mirror0", 2, "mirror1", 2, "mirror2", 2), peak);
+    assertTrue(totalPeak.get() <= 5);
+
+    var metrics = scheduler.metrics();
+    assertEquals(30, metrics.requests());
+    assertEquals(0, metrics.active());
+    assertEquals(0, metrics.queued());
+    assertTrue(metrics.maxQueued() > 5, metrics.toString());
+  }
+
+  @Test
+  public void testFailure() {
+    var scheduler = new IoScheduler(5, 2);
+    var completed = new AtomicInteger();
+
+    var e =
+        assertThrows(
+            UncheckedIOException.class,
+            () ->
+                scheduler.run(
+                    List.of(1, 2, 3, 4),
+                    i -> {
+                      if (i % 2 == 0) throw new IOException("failed " + i);
+                      completed.incrementAndGet();
+                    }));
+
+    // All tasks run, the other failures are suppressed
+    assertEquals(2, completed.get());
+    assertEquals(1, e.getCause().getSuppressed().length);
+  }
+
+  @Test
+  public void testMakespan() {
+    // Submitted smallest first, a large job starts last
+    assertEquals(14, IoScheduler.makespan(List.of(2L, 3L, 3L, 4L, 5L, 7L), 2));
+    // Largest first balances the connections
+    assertEquals(12, IoScheduler.makespan(List.of(7L, 5L, 4L, 3L, 3L, 2L), 2));
+    assertEquals(7, IoScheduler.makespan(List.of(7L, 5L, 4L), 3));
+    assertEquals(0, IoScheduler.makespan(List.of(), 2));
+  }
+}
@@ -0,0 +1,96 @@
+package org.eclipse.birt.publisher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import org.eclipse.birt.publisher.Journal.State;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class JournalTest {
+
+  private static final String REPO = "https://repo.example.org/releases";
+
+  @TempDir Path dir;
+
+  @Test
+  public void testResume() throws Exception {
+    var file = dir.resolve("publish.journal");
+    try (var journal = new Journal(file, REPO, false)) {
+      journal.record("org.example:a:1.0", State.DOWNLOADED);
+      journal.record("org.example:a:1.0", State.VERIFIED);
+      journal.record("org.example:b:1.0", State.DOWNLOADED);
+      journal.record("org.example:a:1.0", State.SIGNED);
+      journal.record("org.example:a:1.0", State.DEPLOYED);
+      assertEquals(5, journal.getRecords());
+      // Only the deploy waits for the disk
+      assertEquals(1, journal.getSyncs());
+    }
+    // Interrupted while writing a record
+    Files.writeString(file, "org.example:b:1.0 VER", StandardOpenOption.APPEND);
+
+    try (var journal = new Journal(file, REPO, true)) {
+      assertEquals(State.DEPLOYED, journal.get("org.example:a:1.0"));
+      assertEquals(State.DOWNLOADED, journal.get("org.example:b:1.0"));
+      assertNull(journal.get("org.example:c:1.0"));
+    }
+
+    // A new run starts over
+    try (var journal = new Journal(file, REPO, false)) {
+      assertNull(journal.get("org.example:a:1.0"));
+    }
+    assertEquals(List.of("# " + REPO), Files.readAllLines(file));
+  }
+
+  @Test
+  public void testRepository() throws Exception {
+    var file = dir.resolve("publish.journal");
+    var local = dir.resolve("repo").toUri().toString();
+    try (var journal = new Journal(file, local, false)) {
+      journal.record("org.example:a:1.0", State.DEPLOYED);
+    }
+
+    // Deployed to another repository, the journal starts over
+    try (var journal = new Journal(file, REPO, true)) {
+      assertNull(journal.get("org.example:a:1.0"));
+      journal.record("org.example:b:1.0", State.DEPLOYED);
+    }
+    assertEquals(List.of("# " + REPO, "org.example:b:1.0 DEPLOYED"), Files.readAllLines(file));
+
+    try (var journal = new Journal(file, REPO, true)) {
+      assertEquals(State.DEPLOYED, journal.get("org.example:b:1.0"));
+    }
+  }
+
+  @Test
+  public void testGroupCommit() throws Exception {
+    var file = dir.resolve("publish.journal");
+    try (var journal = new Journal(file, REPO, false)) {
+      try (var executor = Executors.newFixedThreadPool(8)) {
+        for (var i = 0; i < 1000; i++) {
+          var coordinates = "org.example:a" + i + ":1.0";
+          executor.submit(
+              () -> {
+                journal.record(coordinates, State.DEPLOYED);
+                return null;
+              });
+        }
+      }
+      assertEquals(1000, journal.getRecords());
+      // A sync covers the records written while waiting for the previous one
+      assertTrue(journal.getSyncs() >= 1 && journal.getSyncs() <= 1000);
+    }
+
+    try (var journal = new Journal(file, REPO, true)) {
+      for (var i = 0; i < 1000; i++) {
+        assertEquals(State.DEPLOYED, journal.get("org.example:a" + i + ":1.0"));
+      }
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package org.eclipse.birt.publisher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.eclipse.birt.publisher.Ledger.Entry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LedgerTest {
+
+  private static final String REPO = "https://repo.example.org/releases";
+
+  @TempDir Path dir;
+
+  @Test
+  public void testPersistent() throws Exception {
+    var file = dir.resolve("publish.ledger");
+    var a = new Entry("SHA-512:aa", "SHA-512:bb", "cc", null);
+    var b = new Entry("SHA-512:aa", null, "dd", "ee");
+
+    var ledger = new Ledger(file);
+    assertNull(ledger.get(REPO, "org.example:a:1.0"));
+    ledger.put(REPO, "org.example:a:1.0", a);
+    ledger.put(REPO, "org.example:b:1.0", b);
+
+    // Reloaded by the next run
+    ledger = new Ledger(file);
+    assertEquals(a, ledger.get(REPO, "org.example:a:1.0"));
+    assertEquals(b, ledger.get(REPO, "org.example:b:1.0"));
+
+    // The latest deploy wins, and the file is compacted
+    var changed = new Entry("SHA-512:aa", "SHA-512:bb", "ff", "ee");
+    ledger.put(REPO, "org.example:a:1.0", changed);
+    Files.writeString(file, "org.example:c:1.0 x", StandardOpenOption.APPEND);
+    ledger = new Ledger(file);
+    assertEquals(changed, ledger.get(REPO, "org.example:a:1.0"));
+    assertNull(ledger.get(REPO, "org.example:c:1.0"));
+    assertEquals(2, Files.readAllLines(file).size());
+  }
+
+  @Test
+  public void testRepositories() throws Exception {
+    var file = dir.resolve("publish.ledger");
+    var entry = new Entry("SHA-512:aa", null, "cc", null);
+    var local = dir.resolve("repo").toUri().toString();
+
+    // A deploy to the local repository doesn't count for the remote one
+    var ledger = new Ledger(file);
+    ledger.put(local, "org.example:a:1.0", entry);
+    ledger = new Ledger(file);
+    assertEquals(entry, ledger.get(local, "org.example:a:1.0"));
+    assertNull(ledger.get(REPO, "org.example:a:1.0"));
+
+    ledger.put(REPO, "org.example:a:1.0", entry);
+    ledger = new Ledger(file);
+    assertEquals(entry, ledger.get(local, "org.example:a:1.0"));
+    assertEquals(entry, ledger.get(REPO, "org.example:a:1.0"));
+  }
+
+  @Test
+  public void testChanges() {
+    var entry = new Entry("SHA-512:aa", "SHA-512:bb", "cc", null);
+    assertEquals(List.of(), entry.changes(entry));
+    assertEquals(List.of("pom"), new Entry("SHA-512:aa", "SHA-512:bb", "dd", null).changes(entry));
+    assertEquals(
+        List.of("jar", "sources", "key"), new Entry("SHA-512:ab", null, "cc", "ee").changes(entry));
+  }
+}
@@ -0,0 +1,89 @@
+package org.eclipse.birt.publisher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MavenCentralTest {
+
+  private TestServer server;
+  private MavenCentral central;
+
+  private final byte[] jar = new byte[1 << 20];
+
+  @BeforeEach
+  public void start() throws Exception {
+    server = new TestServer();
+    server.put("/repo/org/example/a/1.0/a-1.0.jar", jar, null, null);
+    server.put("/repo/org/example/a/1.0/a-1.0.jar.sha1", "0".repeat(40).getBytes(), null, null);
+    server.put("/repo/org/example/a/1.0/a-1.0-sources.jar", jar, null, null);
+    central = new MavenCentral(server.url("/repo"));
+  }
+
+  @AfterEach
+  public void stop() {
+    server.close();
+  }
+
+  @Test
+  public void testExists() throws Exception {
+    assertTrue(central.exists(new DefaultArtifact("org.example:a:1.0")));
+    assertTrue(central.exists(new DefaultArtifact("org.example:a:jar:sources:1.0")));
+    assertFalse(central.exists(new DefaultArtifact("org.example:a:2.0")));
+    assertFalse(central.exists(new DefaultArtifact("org.example:b:1.0")));
+
+    // Never a body
+    assertEquals(4, server.requests.size());
+    assertTrue(server.requests.stream().allMatch(x -> x.method().equals("HEAD")));
+  }
+
+  @Test
+  public void testWithoutHead() throws Exception {
+    server.head = false;
+
+    assertTrue(central.exists(new DefaultArtifact("org.example:a:1.0")));
+    assertFalse(central.exists(new DefaultArtifact("org.example:a:2.0")));
+
+    // Only the checksum is fetched
+    assertEquals(1, server.requests("/repo/org/example/a/1.0/a-1.0.jar.sha1").size());
+    assertTrue(
+        server.requests("/repo/org/example/a/1.0/a-1.0.jar").stream()
+            .allMatch(x -> x.method().equals("HEAD")));
+  }
+
+  @Test
+  public void testUnknown() {
+    server.status = 503;
+
+    // Neither found nor missing
+    assertThrows(IOException.class, () -> central.exists(new DefaultArtifact("org.example:c:1.0")));
+  }
+
+  @Test
+  public void testConcurrent() {
+    server.delay = 200;
+    var coordinates = IntStream.range(0, 8).mapToObj(i -> "org.example:a:" + i + ".0").toList();
+    Map<String, Boolean> found = new ConcurrentHashMap<>();
+
+    var start = System.nanoTime();
+    IoScheduler.get().run(coordinates, x -> found.put(x, central.exists(new DefaultArtifact(x))));
+    var elapsed = (System.nanoTime() - start) / 1_000_000;
+
+    assertEquals(
+        List.of(false, true),
+        List.of(found.get("org.example:a:0.0"), found.get("org.example:a:1.0")));
+    assertEquals(8, found.size());
+    assertTrue(elapsed < 8 * 200, "elapsed " + elapsed);
+  }
+}
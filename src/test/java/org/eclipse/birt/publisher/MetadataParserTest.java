@@ -0,0 +1,328 @@
+package org.eclipse.birt.publisher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.eclipse.birt.publisher.metadata.Artifact;
+import org.eclipse.birt.publisher.metadata.Checksum;
+import org.eclipse.birt.publisher.metadata.InstallableUnit;
+import org.eclipse.birt.publisher.metadata.MavenCoordinates;
+import org.eclipse.birt.publisher.metadata.ProvidedCapability;
+import org.eclipse.birt.publisher.metadata.RequiredCapability;
+import org.eclipse.birt.publisher.metadata.Version;
+import org.eclipse.birt.publisher.metadata.VersionRange;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Element;
+
+public class MetadataParserTest {
+
+  @TempDir Path dir;
+
+  private final Site site = new Site("test", "https://example.org/site");
+
+  @Test
+  public void testUnits() throws Exception {
+    var file = Fixtures.contentXml(dir, 50);
+    List<InstallableUnit> units;
+    try (var stream = Files.newInputStream(file)) {
+      units = new MetadataParser(site).parseUnits(stream);
+    }
+
+    assertEquals(50, units.size());
+
+    var unit = units.get(1);
+    assertEquals(Fixtures.unitId(1), unit.id);
+    assertEquals("1.1.0.v2025", unit.version);
+    assertEquals("Bundle 1", unit.name);
+    assertEquals("org.example:" + unit.id + ":1.0.0", unit.maven.toString());
+    assertEquals(4, unit.provides.size());
+    assertEquals(1, unit.artifacts.size());
+    assertEquals(site, unit.site);
+
+    // metaRequirements are not dependencies
+    assertEquals(3, unit.requires.size());
+    assertEquals("[1.0.0,2.0.0)", unit.requires.get(0).range.toString());
+    assertTrue(unit.requires.get(2).optional);
+  }
+
+  @Test
+  public void testRetention() throws Exception {
+    var file = Fixtures.contentXml(dir, 5);
+    InstallableUnit used;
+    InstallableUnit all;
+    try (var stream = Files.newInputStream(file)) {
+      used = new MetadataParser(site, MetadataParser.Retention.USED).parseUnits(stream).get(2);
+    }
+    try (var stream = Files.newInputStream(file)) {
+      all = new MetadataParser(site, MetadataParser.Retention.ALL).parseUnits(stream).get(2);
+    }
+
+    assertEquals("Bundle 2", used.name);
+    assertEquals("Bundle 2", used.properties.get("org.eclipse.equinox.p2.name"));
+    assertEquals("org.example", used.properties.get("maven-groupId"));
+    assertNull(used.properties.get("org.eclipse.equinox.p2.provider"));
+    assertFalse(used.properties.containsKey("df_LT.license"));
+    assertFalse(used.properties.containsKey("df_LT.providerName"));
+
+    assertEquals("Bundle 2", all.name);
+    assertEquals("Eclipse.org", all.properties.get("org.eclipse.equinox.p2.provider"));
+    assertTrue(all.properties.containsKey("df_LT.license"));
+    assertEquals(all.maven.toString(), used.maven.toString());
+  }
+
+  @Test
+  public void testArtifacts() throws Exception {
+    var file = Fixtures.artifactsXml(dir, 10);
+    try (var stream = Files.newInputStream(file)) {
+      var artifacts = new MetadataParser(site).parseArtifacts(stream);
+      assertEquals(10, artifacts.size());
+
+      var artifact = artifacts.get(3);
+      assertEquals("1003", artifact.size);
+      assertEquals(String.format("%0128x", 3), artifact.sha512);
+      assertNull(artifact.sha1);
+      assertEquals(new Checksum("SHA-512", artifact.sha512), artifact.getChecksum());
+      assertEquals("test/plugins/" + artifact.id + "_" + artifact.version + ".jar", artifact.file);
+      assertEquals(
+          "https://example.org/site/plugins/" + artifact.id + "_1.3.0.v2025.jar", artifact.url);
+    }
+  }
+
+  private static String copy(String text) {
+    return text == null ? null : new String(text);
+  }
+
+  private static Map<String, String> copy(Map<String, String> props) {
+    var copy = new HashMap<String, String>();
+    props.forEach((k, v) -> copy.put(copy(k), copy(v)));
+    return copy;
+  }
+
+  private static MavenCoordinates copy(MavenCoordinates maven) {
+    if (maven == null) return null;
+    var copy = new MavenCoordinates();
+    copy.groupId = copy(maven.groupId);
+    copy.artifactId = copy(maven.artifactId);
+    copy.version = copy(maven.version);
+    return copy;
+  }
+
+  /** Copy a unit the way it was stored before interning: own strings, maps and lists. */
+  private static InstallableUnit copy(InstallableUnit unit) {
+    var copy = new InstallableUnit();
+    copy.id = copy(unit.id);
+    copy.version = copy(unit.version);
+    copy.name = copy(unit.name);
+    copy.description = copy(unit.description);
+    copy.properties = copy(unit.properties);
+    copy.maven = copy(unit.maven);
+    for (var provided : unit.provides) {
+      var capability = new ProvidedCapability();
+      capability.namespace = copy(provided.namespace);
+      capability.name = copy(provided.name);
+      capability.version = Version.parse(provided.version.toString());
+      copy.provides.add(capability);
+    }
+    for (var required : unit.requires) {
+      var requirement = new RequiredCapability();
+      requirement.namespace = copy(required.namespace);
+      requirement.name = copy(required.name);
+      requirement.range = VersionRange.parse(required.range.toString());
+      copy.requires.add(requirement);
+    }
+    for (var artifact : unit.artifacts) {
+      var key = new Artifact();
+      key.id = copy(artifact.id);
+      key.version = copy(artifact.version);
+      key.properties = copy(artifact.properties);
+      key.url = copy(artifact.url);
+      key.file = copy(artifact.file);
+      copy.artifacts.add(key);
+    }
+    return copy;
+  }
+
+  private static long retainedHeap(Object[] holder, Action action) throws Exception {
+    var runtime = Runtime.getRuntime();
+    System.gc();
+    var before = runtime.totalMemory() - runtime.freeMemory();
+    holder[0] = action.run();
+    System.gc();
+    return runtime.totalMemory() - runtime.freeMemory() - before;
+  }
+
+  @Test
+  public void testShared() throws Exception {
+    var file = Fixtures.contentXml(dir, 50);
+    List<InstallableUnit> units;
+    try (var stream = Files.newInputStream(file)) {
+      units = new MetadataParser(site, MetadataParser.Retention.ALL).parseUnits(stream);
+    }
+    var a = units.get(0);
+    var b = units.get(7);
+
+    // Equal values are one instance across the units
+    assertSame(a.version, b.version);
+    assertSame(a.properties.get("maven-groupId"), b.properties.get("maven-groupId"));
+    assertSame(a.properties.get("df_LT.license"), b.properties.get("df_LT.license"));
+    assertSame(a.provides.get(3), b.provides.get(3));
+    assertSame(a.requires.get(0).range, b.requires.get(0).range);
+
+    // The property keys are shared too
+    var keys = List.copyOf(a.properties.keySet());
+    var other = List.copyOf(b.properties.keySet());
+    assertEquals(keys, other);
+    for (var i = 0; i < keys.size(); i++) {
+      assertSame(keys.get(i), other.get(i));
+    }
+  }
+
+  /** Run with {@code -Dbenchmark=true}. */
+  @Test
+  @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+  public void benchmarkRetainedHeap() throws Exception {
+    var file = Fixtures.contentXml(dir, 5000);
+    var holder = new Object[2];
+
+    var compact =
+        retainedHeap(
+            holder,
+            () -> {
+              try (var stream = Files.newInputStream(file)) {
+                return new MetadataParser(site, MetadataParser.Retention.ALL).parseUnits(stream);
+              }
+            });
+
+    @SuppressWarnings("unchecked")
+    var units = (List<InstallableUnit>) holder[0];
+    var plain = retainedHeap(new Object[1], () -> units.stream().map(x -> copy(x)).toList());
+
+    var used =
+        retainedHeap(
+            new Object[1],
+            () -> {
+              try (var stream = Files.newInputStream(file)) {
+                return new MetadataParser(site, MetadataParser.Retention.USED).parseUnits(stream);
+              }
+            });
+
+    System.out.printf(
+        "Retained heap: %d KB compact, %d KB plain, %d KB used properties only%n",
+        compact >> 10, plain >> 10, used >> 10);
+    assertTrue(plain > 2 * compact, "compact model should retain less than half the heap");
+    assertTrue(used < compact, "used properties should retain less than all properties");
+  }
+
+  /**
+   * Compare the streaming parser against the DOM based parsing we used before.
+   *
+   * <p>Run with {@code -Dbenchmark=true -Dbenchmark.units=30000}.
+   */
+  @Test
+  @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+  public void benchmark() throws Exception {
+    var count = Integer.getInteger("benchmark.units", 30000);
+    var file = Fixtures.contentXml(dir, count);
+
+    System.out.printf("Fixture: %d units, %d MB%n", count, Files.size(file) >> 20);
+
+    for (var round = 0; round < 3; round++) {
+      var dom = measure(() -> parseDom(file));
+      var stax =
+          measure(
+              () -> {
+                try (var stream = Files.newInputStream(file)) {
+                  return new MetadataParser(site).parseUnits(stream);
+                }
+              });
+      System.out.printf(
+          "Round %d: dom %d ms, %d MB peak; stax %d ms, %d MB peak%n",
+          round, dom[0], dom[1] >> 20, stax[0], stax[1] >> 20);
+    }
+  }
+
+  @FunctionalInterface
+  private static interface Action {
+    Object run() throws Exception;
+  }
+
+  /** Returns the elapsed millis and the peak heap usage while running the action. */
+  private static long[] measure(Action action) throws Exception {
+    var pools =
+        ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(x -> x.getType() == MemoryType.HEAP)
+            .toList();
+    System.gc();
+    pools.forEach(MemoryPoolMXBean::resetPeakUsage);
+    var start = System.nanoTime();
+    var result = action.run();
+    var elapsed = (System.nanoTime() - start) / 1_000_000;
+    var peak = pools.stream().mapToLong(x -> x.getPeakUsage().getUsed()).sum();
+    assertNotNull(result);
+    return new long[] {elapsed, peak};
+  }
+
+  /** The DOM based parsing of {@code Site} before the streaming parser was introduced. */
+  private static List<InstallableUnit> parseDom(Path file) throws Exception {
+    var document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file.toFile());
+    document.getDocumentElement().normalize();
+
+    var nodes = document.getDocumentElement().getElementsByTagName("unit");
+    var units = new ArrayList<InstallableUnit>();
+    for (var i = 0; i < nodes.getLength(); i++) {
+      var element = (Element) nodes.item(i);
+      var unit = new InstallableUnit();
+      unit.id = element.getAttribute("id");
+      unit.version = element.getAttribute("version");
+
+      var props = new HashMap<String, String>();
+      var properties = element.getElementsByTagName("property");
+      for (var j = 0; j < properties.getLength(); j++) {
+        var prop = (Element) properties.item(j);
+        props.put(prop.getAttribute("name"), prop.getAttribute("value"));
+      }
+      unit.properties = props;
+
+      var provides = element.getElementsByTagName("provided");
+      for (var j = 0; j < provides.getLength(); j++) {
+        var elem = (Element) provides.item(j);
+        var provided = new ProvidedCapability();
+        provided.name = elem.getAttribute("name");
+        provided.namespace = elem.getAttribute("namespace");
+        provided.version = Version.parse(elem.getAttribute("version"));
+        unit.provides.add(provided);
+      }
+
+      var requires = element.getElementsByTagName("required");
+      for (var j = 0; j < requires.getLength(); j++) {
+        var elem = (Element) requires.item(j);
+        var required = new RequiredCapability();
+        required.name = elem.getAttribute("name");
+        required.namespace = elem.getAttribute("namespace");
+        required.range = VersionRange.parse(elem.getAttribute("range"));
+        required.optional = "true".equals(elem.getAttribute("optional"));
+        unit.requires.add(required);
+      }
+
+      units.add(unit);
+    }
+
+    return units;
+  }
+}
@@ -0,0 +1,128 @@
+package org.eclipse.birt.publisher;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MirrorsTest {
+
+  @TempDir Path dir;
+
+  private TestServer first;
+  private TestServer second;
+
+  private final byte[] content = "content".getBytes();
+
+  @BeforeEach
+  public void start() throws Exception {
+    first = new TestServer();
+    second = new TestServer();
+    for (var server : List.of(first, second)) {
+      server.put("/site/p2.index", new byte[0], null, null);
+      server.put("/site/plugins/a.jar", content, null, null);
+    }
+  }
+
+  @AfterEach
+  public void stop() {
+    first.close();
+    second.close();
+  }
+
+  private Mirrors mirrors(Duration hedgeDelay) {
+    return new Mirrors(List.of(first.url("/site"), second.url("/site")), hedgeDelay);
+  }
+
+  private static long downloads(TestServer server) {
+    return server.requests("/site/plugins/a.jar").size();
+  }
+
+  @Test
+  public void testProbe() throws Exception {
+    first.delay = 300;
+    var mirrors = mirrors(Duration.ofSeconds(10));
+    mirrors.probe("p2.index");
+
+    // The faster mirror is used, even though it's not the preferred one
+    first.delay = 0;
+    mirrors.download("plugins/a.jar", dir.resolve("a.jar"), content.length, null);
+    assertArrayEquals(content, Files.readAllBytes(dir.resolve("a.jar")));
+    assertEquals(0, downloads(first));
+    assertEquals(1, downloads(second));
+  }
+
+  @Test
+  public void testHedge() throws Exception {
+    first.delay = 3000;
+    Files.write(dir.resolve("a.jar.part"), new byte[10]);
+    Files.writeString(dir.resolve("a.jar.part.validators"), "");
+    var mirrors = mirrors(Duration.ofMillis(100));
+
+    var start = System.nanoTime();
+    mirrors.download("plugins/a.jar", dir.resolve("a.jar"), content.length, null);
+    var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+    // The second mirror wins, the slow request is cancelled
+    assertArrayEquals(content, Files.readAllBytes(dir.resolve("a.jar")));
+    assertTrue(elapsed.toMillis() < 2500, "hedged download took " + elapsed);
+    assertEquals(1, downloads(second));
+    assertFalse(Files.exists(dir.resolve("a.jar.hedge")));
+    assertFalse(Files.exists(dir.resolve("a.jar.part")));
+    assertFalse(Files.exists(dir.resolve("a.jar.part.validators")));
+  }
+
+  @Test
+  public void testFailover() throws Exception {
+    first.remove("/site/plugins/a.jar");
+    var mirrors = mirrors(Duration.ofSeconds(10));
+
+    mirrors.download("plugins/a.jar", dir.resolve("a.jar"), content.length, null);
+    assertArrayEquals(content, Files.readAllBytes(dir.resolve("a.jar")));
+    assertEquals(1, downloads(first));
+    assertEquals(1, downloads(second));
+  }
+
+  @Test
+  public void testHealth() throws Exception {
+    for (var server : List.of(first, second)) {
+      server.put("/site/plugins/b.jar", content, null, null);
+      server.put("/site/plugins/c.jar", content, null, null);
+    }
+    first.remove("/site/plugins/a.jar");
+    var mirrors = mirrors(Duration.ofSeconds(10));
+
+    // A missing file doesn't demote the mirror
+    mirrors.download("plugins/a.jar", dir.resolve("a.jar"), content.length, null);
+    mirrors.download("plugins/b.jar", dir.resolve("b.jar"), content.length, null);
+    assertEquals(1, first.requests("/site/plugins/b.jar").size());
+    assertEquals(0, second.requests("/site/plugins/b.jar").size());
+
+    // A server error does
+    first.status = 503;
+    mirrors.download("plugins/c.jar", dir.resolve("c.jar"), content.length, null);
+    first.status = 0;
+    Files.delete(dir.resolve("b.jar"));
+    mirrors.download("plugins/b.jar", dir.resolve("b.jar"), content.length, null);
+    assertEquals(1, first.requests("/site/plugins/b.jar").size());
+    assertEquals(1, second.requests("/site/plugins/b.jar").size());
+  }
+
+  @Test
+  public void testResolve() {
+    var mirrors = new Mirrors(List.of("https://a.org/site", "https://b.org/eclipse/site"));
+    assertEquals(
+        List.of("https://a.org/site/child", "https://b.org/eclipse/site/child"),
+        mirrors.resolve("https://a.org/site/child").getUrls());
+    assertEquals(List.of("https://c.org/other"), mirrors.resolve("https://c.org/other").getUrls());
+  }
+}
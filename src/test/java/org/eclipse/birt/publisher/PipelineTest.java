@@ -0,0 +1,107 @@
+package org.eclipse.birt.publisher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+public class PipelineTest {
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Test
+  public void testOverlap() {
+    var items = IntStream.range(0, 20).boxed().toList();
+    var done = new ConcurrentLinkedQueue<Integer>();
+    var firstDeploy = new AtomicLong();
+    var lastDownload = new AtomicLong();
+
+    var pipeline =
+        new Pipeline<Integer>(2)
+            .stage(
+                "download",
+                2,
+                x -> {
+                  sleep(10);
+                  lastDownload.accumulateAndGet(System.nanoTime(), Math::max);
+                })
+            .stage(
+                "deploy",
+                1,
+                x -> {
+                  firstDeploy.compareAndSet(0, System.nanoTime());
+                  sleep(20);
+                  done.add(x);
+                });
+    pipeline.run(items);
+
+    assertEquals(items.size(), done.size());
+    // Deploys start while downloads are still running
+    assertTrue(firstDeploy.get() < lastDownload.get());
+
+    // The slow deploy holds the downloads back
+    var metrics = pipeline.metrics();
+    assertEquals(List.of("download", "deploy"), metrics.stream().map(x -> x.stage()).toList());
+    assertEquals(20, metrics.get(1).items());
+    assertTrue(metrics.get(1).blockedMillis() > 0);
+    assertTrue(metrics.get(1).maxQueued() <= 2);
+  }
+
+  @Test
+  public void testFailure() {
+    var deployed = new AtomicInteger();
+    var pipeline =
+        new Pipeline<Integer>(4)
+            .stage(
+                "verify",
+                2,
+                x -> {
+                  if (x == 3) throw new IOException("failed " + x);
+                })
+            .stage("deploy", 1, x -> deployed.incrementAndGet());
+
+    var failures = pipeline.run(IntStream.range(0, 1000).boxed().toList());
+    assertEquals(1, failures.size());
+    assertEquals(3, failures.get(0).item());
+    assertEquals("verify", failures.get(0).stage());
+    assertEquals("failed 3", failures.get(0).error().getMessage());
+    // The other items go on
+    assertEquals(999, deployed.get());
+  }
+
+  @Test
+  public void testError() {
+    var deployed = new AtomicInteger();
+    var pipeline =
+        new Pipeline<Integer>(4)
+            .stage(
+                "verify",
+                2,
+                x -> {
+                  if (x == 3) throw new OutOfMemoryError("failed " + x);
+                })
+            .stage("deploy", 1, x -> deployed.incrementAndGet());
+
+    // An error is not an item failure, it stops the pipeline
+    var e =
+        assertThrows(
+            OutOfMemoryError.class, () -> pipeline.run(IntStream.range(0, 1000).boxed().toList()));
+    assertEquals("failed 3", e.getMessage());
+    assertTrue(deployed.get() < 1000);
+    assertFalse(Thread.currentThread().isInterrupted());
+  }
+}
@@ -0,0 +1,97 @@
+package org.eclipse.birt.publisher;
+
+import static org.eclipse.birt.publisher.SiteTest.requirement;
+import static org.eclipse.birt.publisher.SiteTest.unit;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.eclipse.birt.publisher.metadata.InstallableUnit;
+import org.eclipse.birt.publisher.metadata.ResolvedUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PublisherTest {
+
+  @TempDir Path dir;
+
+  private static void requires(InstallableUnit unit, String... ids) {
+    for (var id : ids) {
+      unit.requires.add(requirement("osgi.bundle", id, "0.0.0"));
+    }
+  }
+
+  private Publisher publisher(List<InstallableUnit> units, String config) throws Exception {
+    var site = new Site("test", "https://example.org");
+    site.init(units, List.of());
+    return new Publisher(dir, Config.load(new StringReader(config)), null, List.of(site));
+  }
+
+  private static List<String> ids(Iterable<ResolvedUnit> units) {
+    var ids = new ArrayList<String>();
+    units.forEach(x -> ids.add(x.id));
+    return ids;
+  }
+
+  @Test
+  public void testOrder() throws Exception {
+    var a = unit("a", "1.0.0");
+    var b = unit("b", "1.0.0");
+    var c = unit("c", "1.0.0");
+    var d = unit("d", "1.0.0");
+    var x = unit("x", "1.0.0");
+    requires(a, "b", "c", "x");
+    requires(b, "d", "a");
+    requires(c, "d", "b");
+    var config = "{\"publish\": [{\"id\": \"a\"}], \"exclude\": [{\"id\": \"x\"}]}";
+
+    // Depth first, whatever order the units are expanded in
+    for (var i = 0; i < 20; i++) {
+      var units = publisher(List.of(a, b, c, d, x), config).findPublishCandidates();
+      assertEquals(List.of("a", "b", "d", "c", "x"), List.copyOf(units.keySet()));
+      assertNull(units.get("x"));
+      assertEquals(List.of("b", "c"), ids(units.get("a").dependencies));
+      assertEquals(List.of("d", "a"), ids(units.get("b").dependencies));
+      assertEquals(List.of("d", "b"), ids(units.get("c").dependencies));
+    }
+  }
+
+  @Test
+  public void testVersions() throws Exception {
+    var a = unit("a", "1.0.0");
+    var b = unit("b", "1.0.0");
+    var c = unit("c", "1.0.0");
+    var d1 = unit("d", "1.0.0");
+    var d2 = unit("d", "2.0.0");
+    var y = unit("y", "1.0.0");
+    requires(a, "b", "c");
+    b.requires.add(requirement("osgi.bundle", "d", "[1.0.0,1.0.0]"));
+    c.requires.add(requirement("osgi.bundle", "d", "[2.0.0,2.0.0]"));
+    requires(d2, "y");
+    var config = "{\"publish\": [{\"id\": \"a\"}]}";
+
+    // The version reached first depth first wins, whichever one was expanded
+    for (var i = 0; i < 20; i++) {
+      var units = publisher(List.of(a, b, c, d1, d2, y), config).findPublishCandidates();
+      assertEquals(List.of("a", "b", "d", "c"), List.copyOf(units.keySet()));
+      assertEquals("1.0.0", units.get("d").version);
+      assertEquals(List.of("d"), ids(units.get("c").dependencies));
+    }
+  }
+
+  @Test
+  public void testDeepGraph() throws Exception {
+    var units = IntStream.range(0, 20_000).mapToObj(i -> unit("u" + i, "1.0.0")).toList();
+    for (var i = 0; i + 1 < units.size(); i++) {
+      requires(units.get(i), "u" + (i + 1));
+    }
+
+    var resolved = publisher(units, "{\"publish\": [{\"id\": \"u0\"}]}").findPublishCandidates();
+    assertEquals(units.size(), resolved.size());
+    assertEquals("u19999", List.copyOf(resolved.keySet()).getLast());
+  }
+}
@@ -0,0 +1,95 @@
+package org.eclipse.birt.publisher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ResolutionCacheTest {
+
+  @TempDir Path dir;
+
+  private static Clock at(long hours) {
+    return Clock.fixed(Instant.EPOCH.plus(Duration.ofHours(hours)), ZoneOffset.UTC);
+  }
+
+  @Test
+  public void testPersistent() throws Exception {
+    var file = dir.resolve("resolve.cache");
+    var ttl = Duration.ofHours(24);
+
+    var cache = new ResolutionCache(file, ttl, at(0));
+    assertNull(cache.get("org.example:a:1.0"));
+    cache.put("org.example:a:1.0", true);
+    cache.put("org.example:b:1.0", false);
+    assertTrue(cache.get("org.example:a:1.0"));
+    assertFalse(cache.get("org.example:b:1.0"));
+    assertEquals(2, cache.getHits());
+    assertEquals(1, cache.getMisses());
+
+    // Reloaded by the next run
+    cache = new ResolutionCache(file, ttl, at(1));
+    assertTrue(cache.get("org.example:a:1.0"));
+    assertFalse(cache.get("org.example:b:1.0"));
+    assertEquals(2, cache.getHits());
+    assertEquals(0, cache.getMisses());
+
+    // Only the missing artifact expires
+    cache = new ResolutionCache(file, ttl, at(1000));
+    assertTrue(cache.get("org.example:a:1.0"));
+    assertNull(cache.get("org.example:b:1.0"));
+    assertEquals(1, Files.readAllLines(file).size());
+
+    // The latest answer wins
+    cache.put("org.example:b:1.0", true);
+    cache = new ResolutionCache(file, ttl, at(2000));
+    assertTrue(cache.get("org.example:b:1.0"));
+  }
+
+  @Test
+  public void testTornLine() throws Exception {
+    var file = dir.resolve("resolve.cache");
+    Files.writeString(file, "org.example:a:1.0 + 0\norg.example:b:1.0 - 1");
+    Files.writeString(file, "\norg.example:c:1.0 + ", StandardOpenOption.APPEND);
+
+    var cache = new ResolutionCache(file, Duration.ofHours(24), at(0));
+    assertTrue(cache.get("org.example:a:1.0"));
+    assertFalse(cache.get("org.example:b:1.0"));
+    assertNull(cache.get("org.example:c:1.0"));
+  }
+
+  @Test
+  public void testUnavailable() throws Exception {
+    try (var server = new TestServer()) {
+      server.put("/repo/org/example/a/1.0/a-1.0.jar", new byte[100], null, null);
+      var central = new MavenCentral(server.url("/repo"));
+      var file = dir.resolve("resolve.cache");
+      var cache = new ResolutionCache(file, Duration.ofHours(24));
+      ResolutionCache.Lookup lookup = x -> central.exists(new DefaultArtifact(x));
+
+      // Neither missing nor cached, asked again next time
+      server.status = 503;
+      assertThrows(UncheckedIOException.class, () -> cache.resolve("org.example:a:1.0", lookup));
+      assertNull(cache.get("org.example:a:1.0"));
+      assertFalse(Files.exists(file));
+
+      server.status = 0;
+      assertTrue(cache.resolve("org.example:a:1.0", lookup));
+      assertFalse(cache.resolve("org.example:b:1.0", lookup));
+      assertEquals(2, Files.readAllLines(file).size());
+    }
+  }
+}
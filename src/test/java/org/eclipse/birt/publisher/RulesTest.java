@@ -0,0 +1,105 @@
+package org.eclipse.birt.publisher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.eclipse.birt.publisher.Config.MappingConfig;
+import org.eclipse.birt.publisher.Config.PublishConfig;
+import org.junit.jupiter.api.Test;
+
+public class RulesTest {
+
+  private static PublishConfig rule(String id, String pattern) {
+    var rule = new PublishConfig();
+    rule.id = id;
+    rule.pattern = pattern;
+    return rule;
+  }
+
+  private static Rules<PublishConfig> compile(PublishConfig... rules) {
+    return Rules.compile("test", List.of(rules), x -> x.id, x -> x.pattern);
+  }
+
+  @Test
+  public void testPrefix() {
+    assertEquals("org.eclipse.birt", Rules.prefix("org\\.eclipse\\.birt.*"));
+    assertEquals("org.eclipse.", Rules.prefix("(org\\.eclipse\\.(equinox|osgi)):.*"));
+    assertEquals("org.eclipse.orbit:derby:", Rules.prefix("(org\\.eclipse\\.orbit):(derby):(.*)"));
+    assertEquals("org.apache.commons.net", Rules.prefix("org\\.apache\\.commons\\.net"));
+    assertEquals("ab", Rules.prefix("abc?"));
+    assertEquals("ab", Rules.prefix("ab(cd)*"));
+    assertEquals("a", Rules.prefix("a(b.*|c)"));
+    assertEquals("a", Rules.prefix("a(b(c.*)|d)"));
+    assertEquals("x", Rules.prefix("x[|)]y"));
+    assertEquals("", Rules.prefix("abc.*|xyz"));
+    assertEquals("", Rules.prefix("(?i)abc"));
+    assertEquals("", Rules.prefix("\\w+"));
+    assertEquals("", Rules.prefix(".*birt.*"));
+  }
+
+  @Test
+  public void testMatches() {
+    var rules =
+        compile(
+            rule(null, "org\\.eclipse\\.birt.*"),
+            rule(null, ".*\\.tests"),
+            rule("uk.co.spudsoft.birt.emitters.excel", null));
+
+    assertTrue(rules.matches("x", "org.eclipse.birt:report:4.0"));
+    assertTrue(rules.matches("x", "org.example.tests"));
+    assertTrue(rules.matches("uk.co.spudsoft.birt.emitters.excel", "uk.co:excel:1.0"));
+    assertFalse(rules.matches("x", "org.eclipse.datatools:core:1.0"));
+    assertFalse(rules.matches("x", "org.eclipse"));
+  }
+
+  @Test
+  public void testFind() {
+    var first = new MappingConfig();
+    first.pattern = "(org\\.eclipse\\.(equinox|osgi)):.*";
+    var second = new MappingConfig();
+    second.pattern = ".*:(.*):.*";
+    var third = new MappingConfig();
+    third.pattern = "org\\.eclipse\\.osgi:.*";
+    var rules = Rules.compile("mappings", List.of(first, second, third), x -> null, x -> x.pattern);
+
+    // In config order, whichever bucket they're in
+    var matches = rules.find("org.eclipse.osgi:org.eclipse.osgi:3.0");
+    assertEquals(List.of(first, second, third), matches.stream().map(x -> x.rule()).toList());
+    assertEquals("org.eclipse.osgi", matches.getFirst().matcher().replaceAll("$1"));
+    assertEquals(
+        List.of(second), rules.find("org.example:a:1.0").stream().map(x -> x.rule()).toList());
+  }
+
+  @Test
+  public void testManyRules() {
+    var rules =
+        compile(
+            IntStream.range(0, 500)
+                .mapToObj(i -> rule(null, "org\\.example\\.p" + i + "\\..*"))
+                .toArray(PublishConfig[]::new));
+    assertTrue(rules.matches("x", "org.example.p42.a:b:1.0"));
+    assertFalse(rules.matches("x", "org.example.q42.a:b:1.0"));
+  }
+
+  @Test
+  public void testInvalid() throws Exception {
+    var e =
+        assertThrows(
+            IllegalArgumentException.class,
+            () ->
+                Config.load(new StringReader("{\"exclude\": [{\"pattern\": \"org.(eclipse\"}]}")));
+    assertTrue(e.getMessage().contains("exclude"), e.getMessage());
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> Config.load(new StringReader("{\"mappings\": [{\"groupId\": \"a\"}]}")));
+
+    // The bundled config compiles
+    assertTrue(Config.load().getCandidateRules().matches("x", "org.eclipse.birt:a:1.0"));
+  }
+}
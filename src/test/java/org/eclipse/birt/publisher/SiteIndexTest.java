@@ -0,0 +1,43 @@
+package org.eclipse.birt.publisher;
+
+import static org.eclipse.birt.publisher.SiteTest.artifact;
+import static org.eclipse.birt.publisher.SiteTest.requirement;
+import static org.eclipse.birt.publisher.SiteTest.unit;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class SiteIndexTest {
+
+  @Test
+  public void testPrecedence() {
+    var first = new Site("first", "https://example.org/first");
+    var a1 = unit("a", "1.0.0", "org.a");
+    first.init(List.of(a1), List.of(artifact("a", "1.0.0")));
+
+    var second = new Site("second", "https://example.org/second");
+    var a2 = unit("a", "2.0.0", "org.a");
+    var b2 = unit("b", "2.0.0", "org.b");
+    second.init(
+        List.of(a2, b2),
+        List.of(artifact("a", "2.0.0"), artifact("b", "2.0.0"), artifact("b.source", "2.0.0")));
+
+    var index = new SiteIndex(List.of(first, second));
+
+    // The first site wins, even with a lower version
+    assertSame(a1, index.findUnit("a"));
+    assertSame(a1, index.findUnit(requirement("java.package", "org.a", "0.0.0")));
+    assertSame(first.findArtifact("a"), index.findArtifact(a1));
+
+    // Later sites are used when the earlier ones don't match
+    assertSame(a2, index.findUnit(requirement("java.package", "org.a", "[2.0.0,3.0.0)")));
+    assertSame(b2, index.findUnit(requirement("osgi.bundle", "b", "0.0.0")));
+    assertSame(second.findArtifact("b.source"), index.findArtifact(b2, "source"));
+
+    assertNull(index.findUnit("c"));
+    assertNull(index.findUnit(requirement("osgi.bundle", "c", "0.0.0")));
+    assertNull(index.findArtifact(a1, "source"));
+  }
+}
@@ -0,0 +1,262 @@
+package org.eclipse.birt.publisher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import org.eclipse.birt.publisher.Site.Format;
+import org.eclipse.birt.publisher.metadata.Artifact;
+import org.eclipse.birt.publisher.metadata.InstallableUnit;
+import org.eclipse.birt.publisher.metadata.ProvidedCapability;
+import org.eclipse.birt.publisher.metadata.RequiredCapability;
+import org.eclipse.birt.publisher.metadata.Version;
+import org.eclipse.birt.publisher.metadata.VersionRange;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZOutputStream;
+
+public class SiteTest {
+
+  @TempDir Path dir;
+
+  static InstallableUnit unit(String id, String version, String... packages) {
+    var unit = new InstallableUnit();
+    unit.id = id;
+    unit.version = version;
+    unit.provides.add(capability("osgi.bundle", id, version));
+    for (var name : packages) {
+      unit.provides.add(capability("java.package", name, version));
+    }
+    return unit;
+  }
+
+  static ProvidedCapability capability(String namespace, String name, String version) {
+    var capability = new ProvidedCapability();
+    capability.namespace = namespace;
+    capability.name = name;
+    capability.version = Version.parse(version);
+    return capability;
+  }
+
+  static RequiredCapability requirement(String namespace, String name, String range) {
+    var requirement = new RequiredCapability();
+    requirement.namespace = namespace;
+    requirement.name = name;
+    requirement.range = VersionRange.parse(range);
+    return requirement;
+  }
+
+  static Artifact artifact(String id, String version) {
+    var artifact = new Artifact();
+    artifact.id = id;
+    artifact.version = version;
+    return artifact;
+  }
+
+  @Test
+  public void testFindUnit() {
+    var site = new Site("test", "https://example.org");
+    var a = unit("a", "1.0.0", "org.a");
+    var b = unit("b", "1.0.0", "org.a", "org.b");
+    site.init(List.of(a, b), List.of(artifact("a", "1.0.0"), artifact("b", "1.0.0")));
+
+    assertSame(a, site.findUnit("a"));
+    assertSame(b, site.findUnit("b"));
+    assertNull(site.findUnit("c"));
+
+    // First provider in metadata order wins
+    assertSame(a, site.findUnit(requirement("java.package", "org.a", "0.0.0")));
+    assertSame(b, site.findUnit(requirement("java.package", "org.b", "0.0.0")));
+    assertNull(site.findUnit(requirement("osgi.bundle", "org.b", "0.0.0")));
+
+    assertEquals("b", site.findArtifact("b").id);
+    assertNull(site.findArtifact("c"));
+  }
+
+  @Test
+  public void testFindUnitVersion() {
+    var site = new Site("test", "https://example.org");
+    var v1 = unit("a", "1.0.0.v1");
+    var v2 = unit("a", "2.1.0.v1", "org.a");
+    var v3 = unit("a", "3.0.0.v1");
+    var v2b = unit("a.copy", "2.1.0.v1", "org.a");
+    site.init(List.of(v2, v1, v3, v2b), List.of());
+
+    // Highest version within the range wins
+    assertSame(v3, site.findUnit(requirement("osgi.bundle", "a", "0.0.0")));
+    assertSame(v3, site.findUnit(requirement("osgi.bundle", "a", "")));
+    assertSame(v2, site.findUnit(requirement("osgi.bundle", "a", "[1.0.0,3.0.0)")));
+    assertSame(v1, site.findUnit(requirement("osgi.bundle", "a", "[1.0.0,2.1.0.v1)")));
+    assertSame(v3, site.findUnit(requirement("osgi.bundle", "a", "(2.1.0.v1,3.0.0.v1]")));
+    assertSame(v2, site.findUnit(requirement("osgi.bundle", "a", "[2.1.0.v1,2.1.0.v1]")));
+    assertNull(site.findUnit(requirement("osgi.bundle", "a", "[4.0.0,5.0.0)")));
+    assertNull(site.findUnit(requirement("osgi.bundle", "a", "(1.0.0.v1,2.0.0)")));
+
+    // First unit in metadata order wins for the same version
+    assertSame(v2, site.findUnit(requirement("java.package", "org.a", "[2.0.0,3.0.0)")));
+  }
+
+  @Test
+  public void testFixture() throws Exception {
+    var site = new Site("test", "https://example.org");
+    var parser = new MetadataParser(site);
+    List<InstallableUnit> units;
+    try (var stream = Files.newInputStream(Fixtures.contentXml(dir, 2000))) {
+      units = parser.parseUnits(stream);
+    }
+    List<Artifact> artifacts;
+    try (var stream = Files.newInputStream(Fixtures.artifactsXml(dir, 2000))) {
+      artifacts = parser.parseArtifacts(stream);
+    }
+    site.init(units, artifacts);
+
+    // Every requirement of the fixture is satisfied by a unit of the site
+    for (var unit : units) {
+      for (var requirement : unit.requires) {
+        var required = site.findUnit(requirement);
+        assertEquals(requirement.name, required.id);
+      }
+      assertEquals(unit.id, site.findArtifact(unit.id).id);
+    }
+  }
+
+  static void jar(Path jar, Path xml) throws Exception {
+    try (var out = new JarOutputStream(Files.newOutputStream(jar))) {
+      out.putNextEntry(new JarEntry(xml.getFileName().toString()));
+      Files.copy(xml, out);
+    }
+  }
+
+  @Test
+  public void testLoad() throws Exception {
+    var path = Files.createDirectories(dir.resolve("test"));
+    jar(path.resolve("content.jar"), Fixtures.contentXml(dir, 100));
+    jar(path.resolve("artifacts.jar"), Fixtures.artifactsXml(dir, 100));
+
+    var site = new Site("test", "https://example.org");
+    site.load(dir);
+
+    assertEquals(100, site.getUnits().size());
+    assertEquals(100, site.getArtifacts().size());
+    assertSame(site, site.findUnit(Fixtures.unitId(42)).site);
+
+    // Nothing is extracted to disk
+    assertFalse(Files.exists(path.resolve("content.xml")));
+    assertFalse(Files.exists(path.resolve("artifacts.xml")));
+  }
+
+  @Test
+  public void testLoadXz() throws Exception {
+    var path = Files.createDirectories(dir.resolve("test"));
+    var xz = path.resolve("content.xml.xz");
+    try (var out = new XZOutputStream(Files.newOutputStream(xz), new LZMA2Options())) {
+      Files.copy(Fixtures.contentXml(dir, 100), out);
+    }
+    Files.copy(Fixtures.artifactsXml(dir, 100), path.resolve("artifacts.xml"));
+
+    var site = new Site("test", "https://example.org");
+    site.load(dir);
+
+    assertEquals(100, site.getUnits().size());
+    assertEquals(100, site.getArtifacts().size());
+  }
+
+  @Test
+  public void testRevalidate() throws Exception {
+    try (var server = new TestServer()) {
+      server.put(
+          "/site/content.xml", Files.readAllBytes(Fixtures.contentXml(dir, 10)), "\"1\"", null);
+      server.put(
+          "/site/artifacts.xml", Files.readAllBytes(Fixtures.artifactsXml(dir, 10)), "\"1\"", null);
+
+      var cache = dir.resolve("cache");
+      var site = new Site("test", server.url("/site"));
+      site.load(cache);
+      assertEquals(10, site.getUnits().size());
+
+      // Unchanged metadata is revalidated, not downloaded again
+      site = new Site("test", server.url("/site"));
+      site.load(cache);
+      assertEquals(10, site.getUnits().size());
+      assertEquals(
+          List.of("\"1\""),
+          server.requests("/site/content.xml").stream()
+              .skip(1)
+              .map(x -> x.header("If-None-Match"))
+              .toList());
+
+      // Changed metadata is downloaded again, the snapshot is not used
+      server.put(
+          "/site/content.xml", Files.readAllBytes(Fixtures.contentXml(dir, 12)), "\"2\"", null);
+      site = new Site("test", server.url("/site"));
+      site.load(cache);
+      assertEquals(12, site.getUnits().size());
+    }
+  }
+
+  @Test
+  public void testFormats() {
+    var key = "metadata.repository.factory.order";
+    var index = new Properties();
+
+    // No p2.index
+    assertEquals(List.of(Format.JAR, Format.XML), Site.formats(null, key, "content"));
+    assertEquals(List.of(Format.JAR, Format.XML), Site.formats(index, key, "content"));
+
+    index.setProperty(key, "content.xml,content.xml.xz,!");
+    assertEquals(List.of(Format.XZ, Format.JAR, Format.XML), Site.formats(index, key, "content"));
+
+    index.setProperty(key, "content.xml.xz,!,content.xml");
+    assertEquals(List.of(Format.XZ), Site.formats(index, key, "content"));
+
+    index.setProperty(key, "compositeContent.xml,!");
+    assertEquals(List.of(), Site.formats(index, key, "content"));
+  }
+
+  @Test
+  public void testLoadComposite() throws Exception {
+    var path = Files.createDirectories(dir.resolve("test"));
+    var composite =
+        """
+        <?xml version='1.0' encoding='UTF-8'?>
+        <repository name='test' version='1.0.0'>
+          <children size='2'>
+            <child location='first'/>
+            <child location='https://example.com/second/'/>
+          </children>
+        </repository>
+        """;
+    Files.writeString(path.resolve("compositeContent.xml"), composite);
+    Files.writeString(path.resolve("compositeArtifacts.xml"), composite);
+    for (var child : List.of("0", "1")) {
+      var childPath = Files.createDirectories(path.resolve(child));
+      Fixtures.contentXml(childPath, 10 + Integer.parseInt(child));
+      Fixtures.artifactsXml(childPath, 10);
+    }
+
+    var site = new Site("test", "https://example.org/test");
+    site.load(dir);
+
+    var sites = site.getChildren();
+    assertEquals(2, sites.size());
+    assertEquals("https://example.org/test/first", sites.get(0).getUrl());
+    assertEquals("https://example.com/second", sites.get(1).getUrl());
+
+    // Merged view keeps the composite order
+    assertEquals(21, site.getUnits().size());
+    assertEquals(20, site.getArtifacts().size());
+    assertSame(sites.get(0), site.findUnit(Fixtures.unitId(1)).site);
+    assertSame(sites.get(1), site.findUnit(Fixtures.unitId(10)).site);
+    assertEquals(
+        "https://example.org/test/first/plugins/" + Fixtures.unitId(1) + "_1.1.0.v2025.jar",
+        site.findArtifact(Fixtures.unitId(1)).url);
+  }
+}
@@ -0,0 +1,150 @@
+package org.eclipse.birt.publisher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.TreeMap;
+import org.eclipse.birt.publisher.metadata.Artifact;
+import org.eclipse.birt.publisher.metadata.InstallableUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SnapshotTest {
+
+  @TempDir Path dir;
+
+  private final Site site = new Site("test", "https://example.org/site");
+
+  private List<InstallableUnit> units(Path file) throws Exception {
+    try (var stream = Files.newInputStream(file)) {
+      return new MetadataParser(site).parseUnits(stream);
+    }
+  }
+
+  private List<Artifact> artifacts(Path file) throws Exception {
+    try (var stream = Files.newInputStream(file)) {
+      return new MetadataParser(site).parseArtifacts(stream);
+    }
+  }
+
+  private static String describe(Artifact artifact) {
+    return String.join(
+        "|",
+        artifact.toString(),
+        String.valueOf(artifact.classifier),
+        String.valueOf(artifact.maven),
+        new TreeMap<>(artifact.properties).toString(),
+        String.valueOf(artifact.size),
+        String.valueOf(artifact.sha512),
+        artifact.url,
+        artifact.file);
+  }
+
+  private static String describe(InstallableUnit unit) {
+    return String.join(
+        "|",
+        unit.toString(),
+        String.valueOf(unit.name),
+        String.valueOf(unit.description),
+        String.valueOf(unit.maven),
+        new TreeMap<>(unit.properties).toString(),
+        unit.provides.toString(),
+        unit.requires.toString(),
+        unit.requires.stream().map(x -> x.optional + "," + x.greedy).toList().toString(),
+        unit.artifacts.stream().map(SnapshotTest::describe).toList().toString());
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    var contentXml = Fixtures.contentXml(dir, 500);
+    var artifactsXml = Fixtures.artifactsXml(dir, 500);
+    var units = units(contentXml);
+    var artifacts = artifacts(artifactsXml);
+
+    var file = dir.resolve("metadata.snapshot");
+    var key = Snapshot.checksum(contentXml, artifactsXml);
+    Snapshot.write(file, key, units, artifacts);
+
+    var snapshot = Snapshot.read(file, key, site);
+
+    assertEquals(units.size(), snapshot.units.size());
+    for (var i = 0; i < units.size(); i++) {
+      assertEquals(describe(units.get(i)), describe(snapshot.units.get(i)));
+      assertSame(site, snapshot.units.get(i).site);
+    }
+
+    assertEquals(artifacts.size(), snapshot.artifacts.size());
+    for (var i = 0; i < artifacts.size(); i++) {
+      assertEquals(describe(artifacts.get(i)), describe(snapshot.artifacts.get(i)));
+    }
+
+    // Stale or corrupted snapshots are ignored
+    assertNull(Snapshot.read(file, key + 1, site));
+    Files.write(file, new byte[] {1, 2, 3});
+    assertNull(Snapshot.read(file, key, site));
+  }
+
+  @Test
+  public void testCorruptedCounts() throws Exception {
+    var contentXml = Fixtures.contentXml(dir, 20);
+    var artifactsXml = Fixtures.artifactsXml(dir, 20);
+    var file = dir.resolve("metadata.snapshot");
+    var key = Snapshot.checksum(contentXml, artifactsXml);
+    Snapshot.write(file, key, units(contentXml), artifacts(artifactsXml));
+    var bytes = Files.readAllBytes(file);
+
+    // The string table count, the first string length and the unit count after the table
+    var table = ByteBuffer.wrap(bytes, 16, 4).getInt();
+    var offset = 20;
+    for (var i = 0; i < table; i++) {
+      offset += 4 + ByteBuffer.wrap(bytes, offset, 4).getInt();
+    }
+    for (var position : new int[] {16, 20, offset}) {
+      for (var value : new int[] {-1, Integer.MAX_VALUE, 0x7f000000}) {
+        var corrupted = bytes.clone();
+        ByteBuffer.wrap(corrupted, position, 4).putInt(value);
+        Files.write(file, corrupted);
+        assertNull(Snapshot.read(file, key, site));
+      }
+    }
+  }
+
+  /** Run with {@code -Dbenchmark=true}. */
+  @Test
+  @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+  public void benchmark() throws Exception {
+    var count = Integer.getInteger("benchmark.units", 30000);
+    var contentXml = Fixtures.contentXml(dir, count);
+    var artifactsXml = Fixtures.artifactsXml(dir, count);
+    var file = dir.resolve("metadata.snapshot");
+
+    for (var round = 0; round < 3; round++) {
+      var start = System.nanoTime();
+      var units = units(contentXml);
+      var artifacts = artifacts(artifactsXml);
+      var parsed = System.nanoTime();
+
+      var key = Snapshot.checksum(contentXml, artifactsXml);
+      Snapshot.write(file, key, units, artifacts);
+      var written = System.nanoTime();
+
+      var snapshot = Snapshot.read(file, Snapshot.checksum(contentXml, artifactsXml), site);
+      var read = System.nanoTime();
+
+      assertEquals(count, snapshot.units.size());
+      System.out.printf(
+          "Round %d: parse %d ms, write %d ms, read %d ms (%d KB)%n",
+          round,
+          (parsed - start) / 1_000_000,
+          (written - parsed) / 1_000_000,
+          (read - written) / 1_000_000,
+          Files.size(file) >> 10);
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package org.eclipse.birt.publisher;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+/** Local HTTP stand-in for the update sites, serves files from memory. */
+public class TestServer implements AutoCloseable {
+
+  /** A served file with its validators, null validators are not sent. */
+  public static record Resource(byte[] content, String etag, String lastModified) {}
+
+  /** A received request */
+  public static record Request(String method, String path, Map<String, List<String>> headers) {
+
+    public String header(String name) {
+      for (var entry : headers.entrySet()) {
+        if (entry.getKey().equalsIgnoreCase(name)) return entry.getValue().getFirst();
+      }
+      return null;
+    }
+  }
+
+  private final HttpServer server;
+
+  private final Map<String, Resource> resources = new ConcurrentHashMap<>();
+
+  public final List<Request> requests = new CopyOnWriteArrayList<>();
+
+  /** Drop the connection of the next response after this many bytes, negative to disable */
+  public volatile int failAfter = -1;
+
+  /** Wait this many milliseconds before each response */
+  public volatile long delay;
+
+  /** Answer HEAD requests, or 405 if disabled */
+  public volatile boolean head = true;
+
+  /** Answer every request with this status if positive */
+  public volatile int status;
+
+  public TestServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/", this::handle);
+    server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    server.start();
+  }
+
+  public String url(String path) {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+  }
+
+  public void put(String path, byte[] content, String etag, String lastModified) {
+    resources.put(path, new Resource(content, etag, lastModified));
+  }
+
+  public void remove(String path) {
+    resources.remove(path);
+  }
+
+  /** The requests received for a path */
+  public List<Request> requests(String path) {
+    return requests.stream().filter(x -> x.path().equals(path)).toList();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    var path = exchange.getRequestURI().getPath();
+    var headers = exchange.getRequestHeaders();
+    requests.add(new Request(exchange.getRequestMethod(), path, Map.copyOf(headers)));
+
+    try (exchange) {
+      if (delay > 0) {
+        try {
+          Thread.sleep(delay);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+
+      if (status > 0) {
+        exchange.sendResponseHeaders(status, -1);
+        return;
+      }
+
+      if (!head && "HEAD".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+
+      var resource = resources.get(path);
+      if (resource == null) {
+        exchange.sendResponseHeaders(404, -1);
+        return;
+      }
+
+      if (resource.etag() != null) {
+        exchange.getResponseHeaders().set("ETag", resource.etag());
+      }
+      if (resource.lastModified() != null) {
+        exchange.getResponseHeaders().set("Last-Modified", resource.lastModified());
+      }
+
+      var ifNoneMatch = headers.getFirst("If-None-Match");
+      var ifModifiedSince = headers.getFirst("If-Modified-Since");
+      if (ifNoneMatch != null
+          ? ifNoneMatch.equals(resource.etag())
+          : ifModifiedSince != null && ifModifiedSince.equals(resource.lastModified())) {
+        exchange.sendResponseHeaders(304, -1);
+        return;
+      }
+
+      var content = resource.content();
+      var offset = 0;
+      var range = headers.getFirst("Range");
+      var ifRange = headers.getFirst("If-Range");
+      if (range != null
+          && range.startsWith("bytes=")
+          && range.endsWith("-")
+          && (ifRange == null
+              || ifRange.equals(resource.etag())
+              || ifRange.equals(resource.lastModified()))) {
+        offset = Integer.parseInt(range.substring(6, range.length() - 1));
+        if (offset >= content.length) {
+          exchange.sendResponseHeaders(416, -1);
+          return;
+        }
+        exchange
+            .getResponseHeaders()
+            .set(
+                "Content-Range",
+                "bytes " + offset + "-" + (content.length - 1) + "/" + content.length);
+      }
+
+      if ("HEAD".equals(exchange.getRequestMethod())) {
+        exchange.getResponseHeaders().set("Content-Length", String.valueOf(content.length));
+        exchange.sendResponseHeaders(200, -1);
+        return;
+      }
+      var length = content.length - offset;
+      exchange.sendResponseHeaders(offset > 0 ? 206 : 200, length == 0 ? -1 : length);
+      var fail = failAfter;
+      if (fail >= 0 && fail < length) {
+        failAfter = -1;
+        exchange.getResponseBody().write(content, offset, fail);
+        exchange.getResponseBody().flush();
+        // Closing the exchange before the whole body is sent drops the connection
+        return;
+      }
+      exchange.getResponseBody().write(content, offset, length);
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+}
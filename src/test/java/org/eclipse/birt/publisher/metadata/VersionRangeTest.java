@@ -0,0 +1,46 @@
+package org.eclipse.birt.publisher.metadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class VersionRangeTest {
+
+  @Test
+  public void testVersion() {
+    assertEquals("1.2.0", Version.parse("1.2").toString());
+    assertEquals("1.2.3.v2025", Version.parse("1.2.3.v2025").toString());
+    assertEquals(Version.EMPTY, Version.parse(""));
+    assertEquals(Version.parse("1.0.0"), Version.parse("1"));
+
+    assertTrue(Version.parse("1.10.0").compareTo(Version.parse("1.9.0")) > 0);
+    assertTrue(Version.parse("1.0.0.v2").compareTo(Version.parse("1.0.0")) > 0);
+    assertTrue(Version.parse("1.0.0.b").compareTo(Version.parse("1.0.0.a")) > 0);
+
+    // Non OSGi versions are kept as qualifier
+    assertEquals("0.0.0.raw:1.2", Version.parse("raw:1.2").toString());
+  }
+
+  @Test
+  public void testRange() {
+    var range = VersionRange.parse("[1.0.0,2.0.0)");
+    assertTrue(range.includes(Version.parse("1.0.0")));
+    assertTrue(range.includes(Version.parse("1.9.9.v2025")));
+    assertFalse(range.includes(Version.parse("2.0.0")));
+    assertFalse(range.includes(Version.parse("0.9.0")));
+    assertEquals("[1.0.0,2.0.0)", range.toString());
+
+    range = VersionRange.parse("(1.0.0,2.0.0]");
+    assertFalse(range.includes(Version.parse("1.0.0")));
+    assertTrue(range.includes(Version.parse("2.0.0")));
+
+    range = VersionRange.parse("1.5.0");
+    assertFalse(range.includes(Version.parse("1.4.0")));
+    assertTrue(range.includes(Version.parse("99.0.0")));
+
+    assertTrue(VersionRange.parse("").includes(Version.EMPTY));
+    assertTrue(VersionRange.parse("0.0.0").includes(Version.parse("3.0.0")));
+  }
+}